@@ -38,12 +38,17 @@ android {
     buildFeatures {
         mlModelBinding = true
     }
+    testOptions {
+        // Unit tests reach android.util.Log, e.g. when KeyframeTracker falls back to MIL
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
     implementation("org.tensorflow:tensorflow-lite:0.0.0-nightly-SNAPSHOT")
     implementation("org.tensorflow:tensorflow-lite-support:0.0.0-nightly-SNAPSHOT")
     implementation(project(":opencv"))
+    implementation(project(":gauge-core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -0,0 +1,166 @@
+package com.example.guagereaderapp;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.SpscFrameExchanger;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hand-off latency between a camera-like producer and a processing thread, comparing the
+ * {@code synchronized}/{@code wait}/{@code notify} two-frame chain JavaCameraView used to
+ * have with {@link SpscFrameExchanger}. Latency is measured from publishing a frame to the
+ * consumer holding it. Results are written to logcat under the "HandoffBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FrameHandoffBenchmark {
+    private static final String TAG = "HandoffBenchmark";
+    private static final int FRAMES = 3000;
+    private static final long FRAME_INTERVAL_NANOS = 2_000_000L;
+    // Processing time per frame, sometimes longer than the frame interval
+    private static final long WORK_NANOS = 1_200_000L;
+    private static final long SLOW_WORK_NANOS = 4_000_000L;
+
+    @Test
+    public void compareLegacyAndLockFreeHandoff() throws Exception {
+        long[] legacy = runLegacy();
+        long[] lockFree = runLockFree();
+
+        Log.i(TAG, "synchronized/wait: " + summary(legacy));
+        Log.i(TAG, "SpscFrameExchanger: " + summary(lockFree));
+
+        assertTrue(legacy.length > 0);
+        assertTrue(lockFree.length > 0);
+    }
+
+    private static long[] runLegacy() throws InterruptedException {
+        LegacyChain chain = new LegacyChain();
+        long[] latencies = new long[FRAMES];
+        int[] count = new int[1];
+
+        Thread consumer = new Thread(() -> {
+            long stamp;
+            while ((stamp = chain.take()) >= 0) {
+                latencies[count[0]++] = System.nanoTime() - stamp;
+                work(count[0]);
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < FRAMES; i++) {
+            chain.put(System.nanoTime());
+            spinFor(FRAME_INTERVAL_NANOS);
+        }
+        chain.stop();
+        consumer.join();
+        return Arrays.copyOf(latencies, count[0]);
+    }
+
+    private static long[] runLockFree() throws InterruptedException {
+        SpscFrameExchanger exchanger = new SpscFrameExchanger(1);
+        long[] stamps = new long[exchanger.slotCount()];
+        long[] latencies = new long[FRAMES];
+        int[] count = new int[1];
+        AtomicBoolean stop = new AtomicBoolean();
+
+        Thread consumer = new Thread(() -> {
+            while (true) {
+                int slot = exchanger.take(10_000_000L);
+                if (slot < 0) {
+                    if (stop.get()) {
+                        return;
+                    }
+                    continue;
+                }
+                latencies[count[0]++] = System.nanoTime() - stamps[slot];
+                exchanger.release(slot);
+                work(count[0]);
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < FRAMES; i++) {
+            int slot = exchanger.claim();
+            if (slot >= 0) {
+                stamps[slot] = System.nanoTime();
+                exchanger.publish(slot);
+            }
+            spinFor(FRAME_INTERVAL_NANOS);
+        }
+        stop.set(true);
+        exchanger.wakeConsumer();
+        consumer.join();
+        Log.i(TAG, "SpscFrameExchanger counters: " + exchanger);
+        // Every frame is either taken or replaced by a newer one, bar the last
+        assertEquals(0, exchanger.getDropped());
+        assertTrue(exchanger.getTaken() + exchanger.getSkipped() >= exchanger.getPublished() - 1);
+        return Arrays.copyOf(latencies, count[0]);
+    }
+
+    private static void work(int frame) {
+        spinFor(frame % 10 == 0 ? SLOW_WORK_NANOS : WORK_NANOS);
+    }
+
+    private static void spinFor(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // busy wait, sleeping would add scheduler latency to the measurement
+        }
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("%d frames, p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us",
+                sorted.length,
+                sorted[sorted.length / 2] / 1e3,
+                sorted[sorted.length * 9 / 10] / 1e3,
+                sorted[sorted.length * 99 / 100] / 1e3,
+                sorted[sorted.length - 1] / 1e3);
+    }
+
+    /**
+     * The hand-off JavaCameraView used before, reduced to timestamps: two slots, a ready flag
+     * and wait/notify on the monitor.
+     */
+    private static final class LegacyChain {
+        private final long[] chain = new long[2];
+        private int chainIdx;
+        private boolean ready;
+        private boolean stopped;
+
+        synchronized void put(long stamp) {
+            chain[chainIdx] = stamp;
+            ready = true;
+            notify();
+        }
+
+        long take() {
+            synchronized (this) {
+                try {
+                    while (!ready && !stopped) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return -1;
+                }
+                if (!ready) {
+                    return -1;
+                }
+                chainIdx = 1 - chainIdx;
+                ready = false;
+            }
+            return chain[1 - chainIdx];
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            notify();
+        }
+    }
+}
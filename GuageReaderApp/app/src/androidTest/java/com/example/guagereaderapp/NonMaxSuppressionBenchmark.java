@@ -0,0 +1,112 @@
+package com.example.guagereaderapp;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.gaugecore.Detections;
+import com.example.gaugecore.NonMaxSuppression;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfRect2d;
+import org.opencv.core.Rect2d;
+import org.opencv.dnn.Dnn;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Micro-benchmark of {@link NonMaxSuppression} against OpenCV's {@code Dnn.NMSBoxesBatched}
+ * on a synthetic, YOLOv8-sized candidate set. Results are written to logcat under the
+ * "NmsBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NonMaxSuppressionBenchmark {
+    private static final String TAG = "NmsBenchmark";
+    private static final int CANDIDATES = 8400;
+    private static final float SCORE_THRESHOLD = 0.25f;
+    private static final float IOU_THRESHOLD = 0.45f;
+    private static final int TOP_K = 300;
+    private static final int WARM_UP = 20;
+    private static final int RUNS = 200;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        assertTrue(OpenCVLoader.initDebug());
+    }
+
+    private static Detections syntheticCandidates() {
+        // Clusters of jittered boxes around a handful of objects, like a real head output
+        Random random = new Random(7);
+        Detections d = new Detections(CANDIDATES);
+        for (int i = 0; i < CANDIDATES; i++) {
+            int object = random.nextInt(24);
+            float cx = 40 + (object % 6) * 100 + random.nextFloat() * 12;
+            float cy = 60 + (object / 6) * 140 + random.nextFloat() * 12;
+            float half = 20 + (object % 3) * 15 + random.nextFloat() * 6;
+            d.add(cx - half, cy - half, cx + half, cy + half, random.nextFloat(), object % 3);
+        }
+        return d;
+    }
+
+    @Test
+    public void compareWithOpenCvNms() {
+        Detections in = syntheticCandidates();
+        Detections out = new Detections(TOP_K);
+        NonMaxSuppression nms = new NonMaxSuppression(IOU_THRESHOLD, TOP_K, 640, 640);
+
+        Rect2d[] rects = new Rect2d[in.count];
+        float[] scores = new float[in.count];
+        int[] classIds = new int[in.count];
+        for (int i = 0; i < in.count; i++) {
+            rects[i] = new Rect2d(in.x1[i], in.y1[i], in.x2[i] - in.x1[i], in.y2[i] - in.y1[i]);
+            scores[i] = in.scores[i];
+            classIds[i] = in.classIds[i];
+        }
+        MatOfRect2d boxes = new MatOfRect2d(rects);
+        MatOfFloat scoreMat = new MatOfFloat(scores);
+        MatOfInt classMat = new MatOfInt(classIds);
+        MatOfInt indices = new MatOfInt();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            nms.run(in, SCORE_THRESHOLD, out);
+            Dnn.NMSBoxesBatched(boxes, scoreMat, classMat, SCORE_THRESHOLD, IOU_THRESHOLD,
+                    indices, 1f, TOP_K);
+        }
+
+        long[] ours = new long[RUNS];
+        long[] opencv = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            nms.run(in, SCORE_THRESHOLD, out);
+            ours[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Dnn.NMSBoxesBatched(boxes, scoreMat, classMat, SCORE_THRESHOLD, IOU_THRESHOLD,
+                    indices, 1f, TOP_K);
+            opencv[i] = System.nanoTime() - start;
+        }
+
+        Log.i(TAG, "NonMaxSuppression: " + summary(ours) + ", kept " + out.count);
+        Log.i(TAG, "Dnn.NMSBoxesBatched: " + summary(opencv) + ", kept " + indices.total());
+
+        // Both apply greedy NMS to the same top-k candidates
+        assertEquals(indices.total(), out.count);
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.1f us, p90 %.1f us, max %.1f us",
+                sorted[sorted.length / 2] / 1e3,
+                sorted[sorted.length * 9 / 10] / 1e3,
+                sorted[sorted.length - 1] / 1e3);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.guagereaderapp;
+
+import android.graphics.Bitmap;
+
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * {@link GaugeReader} that also reads Bitmaps, converting them through a Mat reused between
+ * calls. OpenCV is loaded by {@link GuageReaderApplication} before any activity runs.
+ */
+public class AndroidGaugeReader extends GaugeReader {
+    private final Mat rgba = new Mat();
+
+    public AndroidGaugeReader(GaugeDetector detector) {
+        super(detector);
+    }
+
+    /**
+     * Reads the most confidently detected gauge in {@code image}, or null.
+     */
+    public GaugeReading inferGauge(Bitmap image) {
+        Utils.bitmapToMat(image, rgba);
+        return inferGauge(rgba);
+    }
+
+    /**
+     * Reads every gauge in {@code image} with a single model run, in detection score order.
+     */
+    public List<GaugeReading> inferGauges(Bitmap image) {
+        Utils.bitmapToMat(image, rgba);
+        return inferGauges(rgba);
+    }
+
+    @Override
+    public void release() {
+        super.release();
+        rgba.release();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.guagereaderapp;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.StagedPipeline;
+
+import org.opencv.android.Utils;
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a batch of gauge photos into a CSV file.
+ *
+ * Decoding, preprocessing, inference and writing run as stages of a {@link StagedPipeline}, so
+ * decoding image N+1 overlaps inference of image N. Decoding is usually the slowest step and
+ * gets two threads. Model inputs come from a small pool that inference hands back, which
+ * bounds the tensors in flight; the interpreter itself is only ever driven on the shared
+ * inference worker. An image that fails at any stage still gets a CSV row with the error.
+ */
+public class BatchReader {
+    private static final String TAG = "BatchReader";
+
+    public static final String CSV_HEADER = "image,gauge,reading,angle,center_x,center_y,"
+            + "needle_x,needle_y,confidence,error";
+
+    // Decode just enough pixels for the letterboxed 640x640 model input
+    private static final int DECODE_TARGET_SIZE = 640;
+    private static final int QUEUE_CAPACITY = 2;
+    private static final int DECODE_THREADS = 2;
+    // One being filled, a full queue ahead of inference and one being read, so preprocessing
+    // only waits for an input where handing it on would block anyway and its busy time stays
+    // its own
+    private static final int INPUT_COUNT = QUEUE_CAPACITY + 2;
+
+    public interface Listener {
+        /** Called on the writer thread after each image. */
+        void onImageDone(int done, int total, String name, int gauges);
+    }
+
+    private final ContentResolver resolver;
+    private final GaugeReader reader;
+    private final InferenceExecutor executor;
+    private volatile StagedPipeline<Item> pipeline;
+    private volatile boolean cancelled;
+
+    public BatchReader(ContentResolver resolver, GaugeReader reader, InferenceExecutor executor) {
+        this.resolver = resolver;
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads every image in {@code uris} and writes one row per gauge to {@code csv}. Blocks
+     * until done or cancelled. {@code names} labels the images in the CSV.
+     */
+    public StagedPipeline.Stats run(List<Uri> uris, List<String> names, Writer csv,
+                                    Listener listener) throws InterruptedException, IOException {
+        // Every input is released at the end, also those a cancelled run left inside items
+        List<GaugeReader.Input> created = new ArrayList<>(INPUT_COUNT);
+        BlockingQueue<GaugeReader.Input> inputs = new ArrayBlockingQueue<>(INPUT_COUNT);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            GaugeReader.Input input = reader.newInput();
+            created.add(input);
+            inputs.add(input);
+        }
+        GaugeReader.Preprocessor preprocessor = new GaugeReader.Preprocessor();
+        // Only touched by the single preprocess thread
+        Mat rgba = new Mat();
+        AtomicInteger done = new AtomicInteger();
+        IOException[] writeError = new IOException[1];
+        csv.write(CSV_HEADER + "\n");
+
+        StagedPipeline<Item> stages = new StagedPipeline<Item>(QUEUE_CAPACITY)
+                .addStage("decode", DECODE_THREADS, item -> {
+                    try {
+                        item.bitmap = SampledImageDecoder.decode(resolver, item.uri,
+                                DECODE_TARGET_SIZE);
+                    } catch (IOException | RuntimeException e) {
+                        item.fail("decode", e);
+                    }
+                })
+                .addStage("preprocess", item -> {
+                    if (item.bitmap == null) {
+                        return;
+                    }
+                    GaugeReader.Input input = inputs.take();
+                    try {
+                        Utils.bitmapToMat(item.bitmap, rgba);
+                        preprocessor.prepare(rgba, input);
+                        item.input = input;
+                    } catch (RuntimeException e) {
+                        inputs.offer(input);
+                        item.fail("preprocess", e);
+                    } finally {
+                        item.bitmap.recycle();
+                        item.bitmap = null;
+                    }
+                })
+                .addStage("infer", item -> {
+                    GaugeReader.Input input = item.input;
+                    if (input == null) {
+                        return;
+                    }
+                    try {
+                        item.readings = executor.callOnWorker(() -> reader.infer(input));
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        item.fail("infer", e);
+                    } finally {
+                        // The pool has room for every input, offer cannot fail or be interrupted
+                        item.input = null;
+                        inputs.offer(input);
+                    }
+                })
+                .addStage("write", item -> {
+                    try {
+                        writeRows(csv, item);
+                    } catch (IOException e) {
+                        writeError[0] = e;
+                        throw e;
+                    }
+                    listener.onImageDone(done.incrementAndGet(), uris.size(), item.name,
+                            item.readings == null ? 0 : item.readings.size());
+                });
+        pipeline = stages;
+        if (cancelled) {
+            stages.cancel();
+        }
+
+        try {
+            StagedPipeline.Stats stats = stages.run(items(uris, names));
+            csv.flush();
+            if (writeError[0] != null) {
+                throw writeError[0];
+            }
+            Log.i(TAG, stats.toString());
+            return stats;
+        } finally {
+            preprocessor.release();
+            rgba.release();
+            // Inference may still be using an input if the run was cancelled
+            executor.runOnWorker(() -> {
+                for (GaugeReader.Input input : created) {
+                    input.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops a running batch from any thread. Rows already written stay in the file.
+     */
+    public void cancel() {
+        cancelled = true;
+        StagedPipeline<Item> current = pipeline;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private static Iterator<Item> items(List<Uri> uris, List<String> names) {
+        List<Item> items = new ArrayList<>(uris.size());
+        for (int i = 0; i < uris.size(); i++) {
+            items.add(new Item(uris.get(i), names.get(i)));
+        }
+        return items.iterator();
+    }
+
+    private static void writeRows(Writer csv, Item item) throws IOException {
+        String name = quote(item.name);
+        if (item.error != null) {
+            csv.write(name + ",,,,,,,,," + quote(item.error) + "\n");
+            return;
+        }
+        if (item.readings.isEmpty()) {
+            csv.write(name + ",,,,,,,,,no gauge found\n");
+            return;
+        }
+        for (int g = 0; g < item.readings.size(); g++) {
+            GaugeReading r = item.readings.get(g);
+            csv.write(String.format(Locale.US, "%s,%d,%.1f,%.2f,%d,%d,%d,%d,%.3f,\n",
+                    name, g + 1, r.reading, r.angle, r.center.x, r.center.y,
+                    r.needleTip.x, r.needleTip.y, r.confidence));
+        }
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * One image on its way through the stages. Each field is only touched by one stage at a
+     * time, the pipeline's queues hand it over.
+     */
+    private static final class Item {
+        final Uri uri;
+        final String name;
+        Bitmap bitmap;
+        GaugeReader.Input input;
+        List<GaugeReading> readings;
+        String error;
+
+        Item(Uri uri, String name) {
+            this.uri = uri;
+            this.name = name;
+        }
+
+        void fail(String stage, Exception e) {
+            Log.w(TAG, "Cannot " + stage + " " + name, e);
+            error = stage + " failed: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.guagereaderapp;
+
+import android.content.ClipData;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.StagedPipeline;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads a set of gauge photos in one go, picked individually or as a whole folder, and writes
+ * the readings to a CSV file in the app's external files directory.
+ *
+ * The photos go through a {@link BatchReader} pipeline; progress, images per second and how
+ * busy each stage was are shown as the batch runs and when it ends.
+ */
+public class BatchReadingActivity extends AppCompatActivity {
+    private static final String TAG = "BatchReadingActivity";
+
+    private static final int PICK_IMAGES_REQUEST_CODE = 2000;
+    private static final int PICK_FOLDER_REQUEST_CODE = 2001;
+
+    private Button imagesButton;
+    private Button folderButton;
+    private TextView statusTextView;
+    private ModelRegistry.Lease<GaugeDetector> detectorLease;
+    private GaugeReader gaugeReader;
+    private BatchReader batchReader;
+    private ModelRegistry.PendingLease pendingLease;
+    private final InferenceExecutor inferenceExecutor = new InferenceExecutor();
+    private final ExecutorService batchExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_batch_reading);
+
+        imagesButton = findViewById(R.id.batchImagesBtn);
+        folderButton = findViewById(R.id.batchFolderBtn);
+        statusTextView = findViewById(R.id.batchTextView);
+        imagesButton.setOnClickListener(v -> pickImages());
+        folderButton.setOnClickListener(v -> pickFolder());
+
+        // Batches can only start once the detector is loaded
+        setPickersEnabled(false);
+        statusTextView.setText("Loading model...");
+        pendingLease = ModelRegistry.getInstance(this).acquireDetectorAsync(
+                new ModelRegistry.LeaseCallback<GaugeDetector>() {
+                    @Override
+                    public void onLease(ModelRegistry.Lease<GaugeDetector> lease) {
+                        pendingLease = null;
+                        detectorLease = lease;
+                        gaugeReader = new GaugeReader(lease.get());
+                        batchReader = new BatchReader(getContentResolver(), gaugeReader,
+                                inferenceExecutor);
+                        statusTextView.setText("");
+                        setPickersEnabled(true);
+                    }
+
+                    @Override
+                    public void onError(IOException e) {
+                        pendingLease = null;
+                        Log.e(TAG, "Error initializing detector", e);
+                        Toast.makeText(BatchReadingActivity.this, "Error initializing model",
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+                });
+    }
+
+    private void pickImages() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        startActivityForResult(intent, PICK_IMAGES_REQUEST_CODE);
+    }
+
+    private void pickFolder() {
+        startActivityForResult(new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE),
+                PICK_FOLDER_REQUEST_CODE);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null) return;
+
+        switch (requestCode) {
+            case PICK_IMAGES_REQUEST_CODE:
+                startBatch(pickedImages(data), null);
+                break;
+            case PICK_FOLDER_REQUEST_CODE:
+                if (data.getData() != null) {
+                    startBatch(null, data.getData());
+                }
+                break;
+        }
+    }
+
+    private static List<Uri> pickedImages(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clip = data.getClipData();
+        if (clip != null) {
+            for (int i = 0; i < clip.getItemCount(); i++) {
+                uris.add(clip.getItemAt(i).getUri());
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
+    /**
+     * Runs the batch for {@code picked} images, or for the images directly inside
+     * {@code tree}, off the UI thread.
+     */
+    private void startBatch(List<Uri> picked, Uri tree) {
+        setPickersEnabled(false);
+        statusTextView.setText("Preparing batch...");
+        batchExecutor.execute(() -> {
+            List<Uri> uris = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            if (tree != null) {
+                listFolder(tree, uris, names);
+            } else {
+                for (Uri uri : picked) {
+                    uris.add(uri);
+                    names.add(displayName(uri));
+                }
+            }
+            if (uris.isEmpty()) {
+                showStatus("No images selected", true);
+                return;
+            }
+
+            File outputFile = outputFile();
+            try (Writer csv = new OutputStreamWriter(new FileOutputStream(outputFile),
+                    StandardCharsets.UTF_8)) {
+                StagedPipeline.Stats stats = batchReader.run(uris, names, csv,
+                        (done, total, name, gauges) -> showStatus(String.format(Locale.US,
+                                "%d/%d images\n%s: %d gauge(s)", done, total, name, gauges),
+                                false));
+                showStatus(stats + "\nSaved to " + outputFile, true);
+            } catch (IOException e) {
+                Log.e(TAG, "Batch failed", e);
+                showStatus("Batch failed: " + e.getMessage(), true);
+            } catch (InterruptedException e) {
+                Log.i(TAG, "Batch cancelled");
+            }
+        });
+    }
+
+    private void listFolder(Uri tree, List<Uri> uris, List<String> names) {
+        Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(tree,
+                DocumentsContract.getTreeDocumentId(tree));
+        String[] projection = {
+                DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+                DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+                DocumentsContract.Document.COLUMN_MIME_TYPE
+        };
+        try (Cursor cursor = getContentResolver().query(children, projection, null, null,
+                null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                String mimeType = cursor.getString(2);
+                // Only the folder itself, not its subfolders
+                if (mimeType != null && mimeType.startsWith("image/")) {
+                    uris.add(DocumentsContract.buildDocumentUriUsingTree(tree,
+                            cursor.getString(0)));
+                    names.add(cursor.getString(1));
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Cannot list " + tree, e);
+        }
+    }
+
+    private String displayName(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri,
+                new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && cursor.getString(0) != null) {
+                return cursor.getString(0);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot query name of " + uri, e);
+        }
+        return uri.getLastPathSegment();
+    }
+
+    private File outputFile() {
+        File dir = new File(getExternalFilesDir(null), "batch");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        return new File(dir, "readings-" + stamp + ".csv");
+    }
+
+    private void showStatus(String text, boolean finished) {
+        runOnUiThread(() -> {
+            statusTextView.setText(text);
+            if (finished) {
+                setPickersEnabled(true);
+            }
+        });
+    }
+
+    private void setPickersEnabled(boolean enabled) {
+        imagesButton.setEnabled(enabled);
+        folderButton.setEnabled(enabled);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pendingLease != null) {
+            pendingLease.cancel();
+            pendingLease = null;
+        }
+        if (batchReader != null) {
+            batchReader.cancel();
+        }
+        // Once the cancelled batch has returned nothing submits inference any more, then the
+        // release is queued behind whatever it left on the worker
+        GaugeReader reader = gaugeReader;
+        ModelRegistry.Lease<GaugeDetector> lease = detectorLease;
+        gaugeReader = null;
+        detectorLease = null;
+        batchExecutor.execute(() -> inferenceExecutor.runOnWorker(() -> {
+            if (reader != null) {
+                reader.release();
+            }
+            if (lease != null) {
+                lease.close();
+            }
+        }));
+        batchExecutor.shutdown();
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.guagereaderapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Delegate;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import org.tensorflow.lite.gpu.CompatibilityList;
+import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.nnapi.NnApiDelegate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds the fastest way to run a model on this device and remembers it.
+ *
+ * The GPU delegate is not always faster than the CPU, and more threads than big cores only
+ * adds contention, so instead of guessing each candidate {@link Config} is timed on a synthetic
+ * input: the CPU kernels at 1, 2, 4 and all cores, XNNPACK and XNNPACK with relaxed FP16 at the
+ * best thread count, then the GPU and NNAPI delegates where available. The winner is stored in
+ * shared preferences together with the build fingerprint and the model's SHA-256, so a system
+ * update or a new model triggers a fresh calibration.
+ */
+public final class DelegateTuner {
+    private static final String TAG = "DelegateTuner";
+    private static final String PREFS_NAME = "delegate_tuning";
+
+    private static final int WARM_UP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+    // A candidate whose warm-up is this much slower than the best so far is not timed further
+    private static final int GIVE_UP_FACTOR = 3;
+    private static final int[] THREAD_COUNTS = {1, 2, 4};
+
+    /** Times one configuration, returning its median run time. */
+    interface Timer {
+        long time(Config config, long bestNanos) throws Exception;
+    }
+
+    private final SharedPreferences prefs;
+    private final Map<String, String> hashes = new HashMap<>();
+
+    public DelegateTuner(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME,
+                Context.MODE_PRIVATE);
+    }
+
+    /**
+     * The configuration tuned for {@code model} on this device, or null if it has not been
+     * tuned yet or was tuned for another model or system build.
+     */
+    public Config storedConfig(String modelPath, ByteBuffer model) {
+        return parseEntry(prefs.getString(modelPath, null), Build.FINGERPRINT,
+                modelHash(modelPath, model));
+    }
+
+    /**
+     * The tuned configuration if there is one, otherwise the GPU when it claims to support
+     * this device and four CPU threads when not.
+     */
+    public Config configFor(String modelPath, ByteBuffer model) {
+        Config config = storedConfig(modelPath, model);
+        if (config != null) {
+            return config;
+        }
+        try (CompatibilityList compatList = new CompatibilityList()) {
+            return compatList.isDelegateSupportedOnThisDevice()
+                    ? Config.gpu() : Config.cpu(4, false, false);
+        }
+    }
+
+    /**
+     * Benchmarks every candidate on {@code model} unless a valid result is already stored.
+     * Blocks for as long as the calibration takes, which can be tens of seconds. If
+     * {@code disturbed} reports that something else ran on the device's cores meanwhile, the
+     * timings are not trusted and nothing is stored.
+     *
+     * @return the newly chosen configuration, or null if the stored one is still valid or the
+     *         result was discarded
+     */
+    public Config tuneIfNeeded(String modelPath, ByteBuffer model, BooleanSupplier disturbed) {
+        if (storedConfig(modelPath, model) != null) {
+            return null;
+        }
+        boolean gpuSupported;
+        try (CompatibilityList compatList = new CompatibilityList()) {
+            gpuSupported = compatList.isDelegateSupportedOnThisDevice();
+        }
+        // The NNAPI delegate needs Android 8.1
+        boolean nnapiSupported = Build.VERSION.SDK_INT >= 27;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Map<Config, Long> timings = tune(cores, gpuSupported, nnapiSupported,
+                (config, bestNanos) -> time(model, config, bestNanos));
+        Config best = fastest(timings);
+        for (Map.Entry<Config, Long> timing : timings.entrySet()) {
+            Log.i(TAG, String.format(Locale.US, "%s: %.1f ms", timing.getKey(),
+                    timing.getValue() / 1e6));
+        }
+        if (best == null) {
+            Log.w(TAG, "No configuration could run " + modelPath);
+            return null;
+        }
+        if (disturbed.getAsBoolean()) {
+            Log.i(TAG, "Discarding timings for " + modelPath + ", the model ran meanwhile");
+            return null;
+        }
+        Log.i(TAG, "Using " + best + " for " + modelPath);
+        prefs.edit()
+                .putString(modelPath, entry(Build.FINGERPRINT, modelHash(modelPath, model), best))
+                .apply();
+        return best;
+    }
+
+    /**
+     * Times the candidates for a device with {@code cores} cores. Candidates that fail to
+     * run are left out of the result.
+     */
+    static Map<Config, Long> tune(int cores, boolean gpuSupported, boolean nnapiSupported,
+                                  Timer timer) {
+        Map<Config, Long> timings = new LinkedHashMap<>();
+        for (int threads : THREAD_COUNTS) {
+            if (threads <= cores) {
+                measure(timer, Config.cpu(threads, false, false), timings);
+            }
+        }
+        if (cores > THREAD_COUNTS[THREAD_COUNTS.length - 1]) {
+            measure(timer, Config.cpu(cores, false, false), timings);
+        }
+        Config bestCpu = fastest(timings);
+        int threads = bestCpu == null ? 1 : bestCpu.threads;
+        measure(timer, Config.cpu(threads, true, false), timings);
+        measure(timer, Config.cpu(threads, true, true), timings);
+        if (gpuSupported) {
+            measure(timer, Config.gpu(), timings);
+        }
+        if (nnapiSupported) {
+            measure(timer, Config.nnapi(), timings);
+        }
+        return timings;
+    }
+
+    private static void measure(Timer timer, Config config, Map<Config, Long> timings) {
+        Config best = fastest(timings);
+        try {
+            timings.put(config, timer.time(config, best == null ? Long.MAX_VALUE
+                    : timings.get(best)));
+        } catch (Exception e) {
+            // Delegates refuse models with unsupported ops by throwing
+            timings.remove(config);
+        }
+    }
+
+    static Config fastest(Map<Config, Long> timings) {
+        Config best = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (Map.Entry<Config, Long> timing : timings.entrySet()) {
+            if (timing.getValue() < bestNanos) {
+                best = timing.getKey();
+                bestNanos = timing.getValue();
+            }
+        }
+        return best;
+    }
+
+    static String entry(String device, String modelHash, Config config) {
+        return device + "|" + modelHash + "|" + config.encode();
+    }
+
+    static Config parseEntry(String entry, String device, String modelHash) {
+        if (entry == null) {
+            return null;
+        }
+        String[] parts = entry.split("\\|");
+        if (parts.length != 3 || !parts[0].equals(device) || !parts[1].equals(modelHash)) {
+            return null;
+        }
+        return Config.decode(parts[2]);
+    }
+
+    private synchronized String modelHash(String modelPath, ByteBuffer model) {
+        // The asset does not change while the app runs, hash it once per process
+        String hash = hashes.get(modelPath);
+        if (hash == null) {
+            hash = sha256(model);
+            hashes.put(modelPath, hash);
+        }
+        return hash;
+    }
+
+    static String sha256(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long time(ByteBuffer model, Config config, long bestNanos) {
+        Handle handle = Handle.open(model, config);
+        try {
+            Interpreter interpreter = handle.interpreter;
+            Random random = new Random(42);
+            Object[] inputs = new Object[interpreter.getInputTensorCount()];
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = syntheticInput(interpreter.getInputTensor(i), random);
+            }
+            Map<Integer, Object> outputs = new HashMap<>();
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                outputs.put(i, allocateTensor(interpreter.getOutputTensor(i).numBytes()));
+            }
+
+            for (int run = 0; run < WARM_UP_RUNS; run++) {
+                long start = System.nanoTime();
+                interpreter.runForMultipleInputsOutputs(inputs, outputs);
+                long elapsed = System.nanoTime() - start;
+                // Only the last warm-up run is past kernel compilation
+                if (run == WARM_UP_RUNS - 1 && bestNanos != Long.MAX_VALUE
+                        && elapsed > GIVE_UP_FACTOR * bestNanos) {
+                    return elapsed;
+                }
+            }
+            long[] runs = new long[TIMED_RUNS];
+            for (int run = 0; run < TIMED_RUNS; run++) {
+                long start = System.nanoTime();
+                interpreter.runForMultipleInputsOutputs(inputs, outputs);
+                runs[run] = System.nanoTime() - start;
+            }
+            Arrays.sort(runs);
+            return runs[TIMED_RUNS / 2];
+        } finally {
+            handle.close();
+        }
+    }
+
+    private static ByteBuffer syntheticInput(Tensor tensor, Random random) {
+        // Random pixels rather than zeros, so no kernel gets an easy ride
+        ByteBuffer buffer = allocateTensor(tensor.numBytes());
+        if (tensor.dataType() == DataType.FLOAT32) {
+            while (buffer.remaining() >= 4) {
+                buffer.putFloat(random.nextFloat());
+            }
+        } else {
+            byte[] bytes = new byte[tensor.numBytes()];
+            random.nextBytes(bytes);
+            buffer.put(bytes);
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    private static ByteBuffer allocateTensor(int numBytes) {
+        return ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * One way of running a model: the CPU kernels with a thread count, optionally through
+     * XNNPACK and with FP16 arithmetic allowed, or a hardware delegate.
+     */
+    public static final class Config {
+        public enum Backend { CPU, GPU, NNAPI }
+
+        public final Backend backend;
+        public final int threads;
+        public final boolean xnnpack;
+        public final boolean fp16;
+
+        private Config(Backend backend, int threads, boolean xnnpack, boolean fp16) {
+            this.backend = backend;
+            this.threads = threads;
+            this.xnnpack = xnnpack;
+            this.fp16 = fp16;
+        }
+
+        public static Config cpu(int threads, boolean xnnpack, boolean fp16) {
+            return new Config(Backend.CPU, threads, xnnpack, fp16);
+        }
+
+        public static Config gpu() {
+            return new Config(Backend.GPU, 1, false, true);
+        }
+
+        public static Config nnapi() {
+            return new Config(Backend.NNAPI, 1, false, false);
+        }
+
+        String encode() {
+            return backend + ":" + threads + ":" + (xnnpack ? 1 : 0) + ":" + (fp16 ? 1 : 0);
+        }
+
+        static Config decode(String encoded) {
+            String[] parts = encoded.split(":");
+            if (parts.length != 4) {
+                return null;
+            }
+            try {
+                int threads = Integer.parseInt(parts[1]);
+                if (threads < 1) {
+                    return null;
+                }
+                return new Config(Backend.valueOf(parts[0]), threads, parts[2].equals("1"),
+                        parts[3].equals("1"));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Config)) {
+                return false;
+            }
+            Config other = (Config) o;
+            return backend == other.backend && threads == other.threads
+                    && xnnpack == other.xnnpack && fp16 == other.fp16;
+        }
+
+        @Override
+        public int hashCode() {
+            return encode().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            if (backend != Backend.CPU) {
+                return backend.toString();
+            }
+            return "CPU " + threads + (threads == 1 ? " thread" : " threads")
+                    + (xnnpack ? ", XNNPACK" : "") + (fp16 ? ", FP16" : "");
+        }
+    }
+
+    /**
+     * An interpreter created for a {@link Config}, together with the delegate it owns.
+     */
+    public static final class Handle {
+        public final Interpreter interpreter;
+        private final Delegate delegate;
+
+        private Handle(Interpreter interpreter, Delegate delegate) {
+            this.interpreter = interpreter;
+            this.delegate = delegate;
+        }
+
+        /**
+         * Creates an interpreter for {@code model}. Throws if the backend cannot run it.
+         */
+        public static Handle open(ByteBuffer model, Config config) {
+            Interpreter.Options options = new Interpreter.Options();
+            Delegate delegate = null;
+            switch (config.backend) {
+                case GPU:
+                    try (CompatibilityList compatList = new CompatibilityList()) {
+                        delegate = new GpuDelegate(compatList.getBestOptionsForThisDevice());
+                    }
+                    break;
+                case NNAPI:
+                    delegate = new NnApiDelegate();
+                    break;
+                default:
+                    options.setNumThreads(config.threads);
+                    options.setUseXNNPACK(config.xnnpack);
+                    options.setAllowFp16PrecisionForFp32(config.fp16);
+                    break;
+            }
+            if (delegate != null) {
+                options.addDelegate(delegate);
+            }
+            try {
+                return new Handle(new Interpreter(model, options), delegate);
+            } catch (RuntimeException e) {
+                if (delegate != null) {
+                    delegate.close();
+                }
+                throw e;
+            }
+        }
+
+        public void close() {
+            interpreter.close();
+            if (delegate != null) {
+                delegate.close();
+            }
+        }
+    }
+}
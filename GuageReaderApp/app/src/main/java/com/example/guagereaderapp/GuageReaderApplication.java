@@ -0,0 +1,41 @@
+package com.example.guagereaderapp;
+
+import android.app.Application;
+import android.util.Log;
+
+import org.opencv.android.OpenCVLoader;
+
+public class GuageReaderApplication extends Application {
+    private static final String TAG = "GuageReaderApplication";
+    private static final int MODEL_WARM_UP_RUNS = 1;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // gauge-core expects the native library to be loaded already, as it is on the desktop
+        if (!OpenCVLoader.initDebug()) {
+            Log.e(TAG, "OpenCV initialization failed");
+        }
+        ModelRegistry registry = ModelRegistry.getInstance(this);
+        registry.setWarmUpRuns(MODEL_WARM_UP_RUNS);
+        // Load the detector off the main thread before the first screen asks for it, then, on
+        // the first run on this device or with a new model, find the fastest delegate and
+        // thread count
+        registry.prewarmDetector(registry::tuneInBackground);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Keep the models warm while we are merely hidden, give them back once we are cached
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            ModelRegistry.getInstance(this).trim();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        ModelRegistry.getInstance(this).trim();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.guagereaderapp;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * In-process hand-off for images passed between activities.
+ *
+ * Intents carry a short token instead of the pixels, so large photos are neither parcelled
+ * through Binder nor copied on the way. Images are held in an LRU cache with a memory budget;
+ * if an entry has been evicted, or the process was restarted, {@link #get} returns null and the
+ * caller has to ask for the image again.
+ */
+public final class ImageRepository {
+    public static final String EXTRA_IMAGE_TOKEN = "image_token";
+
+    // Share of the heap images may occupy before the oldest are evicted
+    private static final int HEAP_FRACTION = 8;
+
+    private static ImageRepository instance;
+
+    private final LruCache<String, Bitmap> cache;
+    private int nextToken;
+
+    private ImageRepository(int maxKilobytes) {
+        cache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+        };
+    }
+
+    public static synchronized ImageRepository getInstance() {
+        if (instance == null) {
+            int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / HEAP_FRACTION);
+            instance = new ImageRepository(maxKilobytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Stores {@code image} and returns the token to put in the Intent. The caller must not
+     * recycle or mutate the bitmap afterwards.
+     */
+    public synchronized String put(Bitmap image) {
+        String token = "img-" + (++nextToken);
+        cache.put(token, image);
+        return token;
+    }
+
+    public Bitmap get(String token) {
+        return token == null ? null : cache.get(token);
+    }
+
+    public void remove(String token) {
+        if (token != null) {
+            cache.remove(token);
+        }
+    }
+}
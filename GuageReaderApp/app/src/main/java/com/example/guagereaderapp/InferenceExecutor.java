@@ -0,0 +1,147 @@
+package com.example.guagereaderapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs gauge inference off the UI thread with single-flight semantics.
+ *
+ * All instances share one worker thread, so the shared interpreter is never run concurrently.
+ * Each instance keeps at most one job pending: submitting a new job cancels the previous one,
+ * either before it starts or, if it is already running, by discarding its result. Results and
+ * errors are delivered on the main thread together with separate queue, compute and render
+ * timings.
+ */
+public class InferenceExecutor {
+    private static final String TAG = "InferenceExecutor";
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "gauge-inference");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private long generation;
+    private Future<?> pending;
+
+    /**
+     * Work for one request. {@link #compute} produces the raw result, {@link #render} turns it
+     * into what the UI shows. Both run on the worker thread.
+     */
+    public interface Job<C, R> {
+        C compute() throws Exception;
+
+        R render(C computed) throws Exception;
+    }
+
+    public interface Callback<R> {
+        void onResult(R result, Timings timings);
+
+        void onError(Exception e);
+    }
+
+    public static class Timings {
+        public final long queueWaitNanos;
+        public final long computeNanos;
+        public final long renderNanos;
+
+        Timings(long queueWaitNanos, long computeNanos, long renderNanos) {
+            this.queueWaitNanos = queueWaitNanos;
+            this.computeNanos = computeNanos;
+            this.renderNanos = renderNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "queue %.1f ms, compute %.1f ms, render %.1f ms",
+                    queueWaitNanos / 1e6, computeNanos / 1e6, renderNanos / 1e6);
+        }
+    }
+
+    public synchronized <C, R> void submit(Job<C, R> job, Callback<R> callback) {
+        final long id = ++generation;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        final long submitted = System.nanoTime();
+        pending = WORKER.submit(() -> {
+            if (isStale(id)) {
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                C computed = job.compute();
+                long computedAt = System.nanoTime();
+                if (isStale(id)) {
+                    Log.d(TAG, "Dropping stale result after compute");
+                    return;
+                }
+                R result = job.render(computed);
+                long rendered = System.nanoTime();
+                Timings timings = new Timings(started - submitted,
+                        computedAt - started, rendered - computedAt);
+                Log.i(TAG, timings.toString());
+                mainHandler.post(() -> {
+                    if (!isStale(id)) {
+                        callback.onResult(result, timings);
+                    }
+                });
+            } catch (Exception e) {
+                mainHandler.post(() -> {
+                    if (!isStale(id)) {
+                        callback.onError(e);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Cancels the pending job, if any. Its callback will not be invoked.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Runs a task on the worker thread after any job already running there, e.g. to release
+     * a model lease only once nothing can still be using it, or to drive the interpreter
+     * outside the single-flight {@link #submit} path.
+     */
+    public void runOnWorker(Runnable task) {
+        WORKER.execute(task);
+    }
+
+    /**
+     * Runs a task on the worker thread and waits for its result, for pipelines that drive the
+     * interpreter from their own threads. Exceptions thrown by the task are rethrown.
+     */
+    public <V> V callOnWorker(Callable<V> task) throws Exception {
+        try {
+            return WORKER.submit(task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized boolean isStale(long id) {
+        return id != generation;
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.guagereaderapp;
+
+import android.util.Log;
+
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.Point;
+import com.example.gaugecore.Rectangle;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.video.Tracker;
+import org.opencv.video.TrackerMIL;
+import org.opencv.video.TrackerNano;
+import org.opencv.video.TrackerNano_Params;
+import org.opencv.video.TrackerVit;
+import org.opencv.video.TrackerVit_Params;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Bridges the frames between detector keyframes with an OpenCV tracker.
+ *
+ * On a keyframe the detector's needle tip is handed to the tracker. Until the next keyframe
+ * the tracker follows the tip and the reading is recomputed against the keyframe's dial
+ * center, which costs a few milliseconds instead of a model run. A keyframe is due every
+ * {@code keyframeInterval} frames, and at once when the tracker loses the tip, its score (for
+ * trackers that report one) falls below {@code minScore}, or the tracked needle length drifts
+ * away from the keyframe's.
+ *
+ * All frames between two keyframes are cut from the same window of the camera frame, which is
+ * the region the keyframe was detected in, so tracker coordinates stay consistent.
+ *
+ * The OpenCV tracker sits behind {@link TipTracker}, so the scheduling and loss checks run
+ * without the video module in unit tests.
+ */
+public class KeyframeTracker {
+    private static final String TAG = "KeyframeTracker";
+
+    public enum Kind {
+        /** Needs no model files. */
+        MIL,
+        /** Needs nanotrack_backbone.onnx and nanotrack_head.onnx in the model directory. */
+        NANO,
+        /** Needs vit_tracker.onnx in the model directory. */
+        VIT
+    }
+
+    /**
+     * Follows the needle tip between keyframes.
+     */
+    interface TipTracker {
+        void init(Mat frame, Rect box);
+
+        /** Moves {@code box} onto the tip in {@code frame}, false if it was not found. */
+        boolean update(Mat frame, Rect box);
+
+        /** Confidence of the last update, 1 for trackers that only report found or not. */
+        float score();
+
+        void release();
+    }
+
+    /**
+     * Creates the tracker of a kind, or returns null when its model files are missing.
+     */
+    interface TipTrackerFactory {
+        TipTracker create(Kind kind, File modelDir);
+    }
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 10;
+    public static final float DEFAULT_MIN_SCORE = 0.5f;
+
+    // Relative change of the tracked needle length that is taken as a lost track
+    private static final double MAX_LENGTH_CHANGE = 0.25;
+    private static final int MIN_TARGET_SIZE = 24;
+
+    private final Kind kind;
+    private final int keyframeInterval;
+    private final float minScore;
+    private final TipTracker tracker;
+    private final Rect box = new Rect();
+
+    private boolean tracking;
+    private int framesSinceKeyframe;
+    private Rectangle window;
+    private Point center;
+    private Rectangle gaugeBox;
+    private float keyframeConfidence;
+    private double needleLength;
+
+    private long detectorFrames;
+    private long trackerFrames;
+    private long trackerLosses;
+
+    public KeyframeTracker(Kind kind, File modelDir) {
+        this(kind, modelDir, DEFAULT_KEYFRAME_INTERVAL, DEFAULT_MIN_SCORE);
+    }
+
+    public KeyframeTracker(Kind kind, File modelDir, int keyframeInterval, float minScore) {
+        this(kind, modelDir, keyframeInterval, minScore, KeyframeTracker::createOpenCv);
+    }
+
+    KeyframeTracker(Kind kind, File modelDir, int keyframeInterval, float minScore,
+                    TipTrackerFactory factory) {
+        this.keyframeInterval = keyframeInterval;
+        this.minScore = minScore;
+        Kind created = kind;
+        TipTracker t = null;
+        try {
+            t = factory.create(kind, modelDir);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot create " + kind + " tracker, using MIL", e);
+        }
+        if (t == null) {
+            created = Kind.MIL;
+            t = factory.create(Kind.MIL, modelDir);
+        }
+        this.kind = created;
+        this.tracker = t;
+    }
+
+    private static TipTracker createOpenCv(Kind kind, File modelDir) {
+        Tracker tracker = createTracker(kind, modelDir);
+        return tracker == null ? null : new OpenCvTipTracker(tracker, kind);
+    }
+
+    private static Tracker createTracker(Kind kind, File modelDir) {
+        switch (kind) {
+            case NANO: {
+                File backbone = new File(modelDir, "nanotrack_backbone.onnx");
+                File head = new File(modelDir, "nanotrack_head.onnx");
+                if (!backbone.isFile() || !head.isFile()) {
+                    Log.w(TAG, "NanoTrack models not found in " + modelDir + ", using MIL");
+                    return null;
+                }
+                TrackerNano_Params params = new TrackerNano_Params();
+                params.set_backbone(backbone.getAbsolutePath());
+                params.set_neckhead(head.getAbsolutePath());
+                return TrackerNano.create(params);
+            }
+            case VIT: {
+                File net = new File(modelDir, "vit_tracker.onnx");
+                if (!net.isFile()) {
+                    Log.w(TAG, "VitTrack model not found in " + modelDir + ", using MIL");
+                    return null;
+                }
+                TrackerVit_Params params = new TrackerVit_Params();
+                params.set_net(net.getAbsolutePath());
+                return TrackerVit.create(params);
+            }
+            default:
+                return TrackerMIL.create();
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Whether the next frame has to go through the detector.
+     */
+    public synchronized boolean isKeyframeDue() {
+        return !tracking || framesSinceKeyframe >= keyframeInterval;
+    }
+
+    /**
+     * Region of the camera frame that tracked frames are cut from, null for the full frame.
+     */
+    public synchronized Rectangle getWindow() {
+        return window;
+    }
+
+    /**
+     * Starts tracking from a detector result. {@code reading} is in {@code frame}
+     * coordinates, {@code frame} was cut from {@code window} of the camera frame.
+     */
+    public synchronized void onKeyframe(Mat frame, Rectangle window, GaugeReading reading) {
+        onKeyframe(frame, frame.cols(), frame.rows(), window, reading);
+    }
+
+    synchronized void onKeyframe(Mat frame, int width, int height, Rectangle window,
+                                 GaugeReading reading) {
+        detectorFrames++;
+        framesSinceKeyframe = 0;
+        tracking = false;
+        if (reading == null) {
+            return;
+        }
+        int size = reading.gaugeBox != null
+                ? Math.max(MIN_TARGET_SIZE, reading.gaugeBox.width / 4)
+                : 2 * MIN_TARGET_SIZE;
+        box.x = Math.max(0, reading.needleTip.x - size / 2);
+        box.y = Math.max(0, reading.needleTip.y - size / 2);
+        box.width = Math.min(size, width - box.x);
+        box.height = Math.min(size, height - box.y);
+        if (box.width < MIN_TARGET_SIZE / 2 || box.height < MIN_TARGET_SIZE / 2) {
+            return;
+        }
+
+        tracker.init(frame, box);
+        this.window = window;
+        center = reading.center;
+        gaugeBox = reading.gaugeBox;
+        keyframeConfidence = reading.confidence;
+        needleLength = length(center, reading.needleTip);
+        tracking = true;
+    }
+
+    /**
+     * Follows the needle into {@code frame}, cut from the same window as the keyframe. Returns
+     * the reading in {@code frame} coordinates, or null if the track was lost, in which case
+     * the next frame is a keyframe.
+     */
+    public synchronized GaugeReading track(Mat frame) {
+        framesSinceKeyframe++;
+        if (!tracking) {
+            return null;
+        }
+        boolean found = tracker.update(frame, box);
+        float score = tracker.score();
+        Point tip = new Point(box.x + box.width / 2, box.y + box.height / 2);
+        double length = length(center, tip);
+        if (!found || score < minScore
+                || Math.abs(length - needleLength) > MAX_LENGTH_CHANGE * needleLength) {
+            trackerLosses++;
+            tracking = false;
+            return null;
+        }
+        trackerFrames++;
+        return GaugeReader.readingFor(center, tip, gaugeBox,
+                Math.min(keyframeConfidence, score));
+    }
+
+    private static double length(Point a, Point b) {
+        return Math.hypot(b.x - a.x, b.y - a.y);
+    }
+
+    public synchronized long getDetectorFrames() {
+        return detectorFrames;
+    }
+
+    public synchronized long getTrackerFrames() {
+        return trackerFrames;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = detectorFrames + trackerFrames;
+        return String.format(Locale.US, "%s tracker served %.0f%% of %d frames, %d losses",
+                kind, total == 0 ? 0f : 100f * trackerFrames / total, total, trackerLosses);
+    }
+
+    public void release() {
+        tracker.release();
+    }
+
+    private static final class OpenCvTipTracker implements TipTracker {
+        private final Tracker tracker;
+        private final Kind kind;
+        private final Mat color = new Mat();
+
+        OpenCvTipTracker(Tracker tracker, Kind kind) {
+            this.tracker = tracker;
+            this.kind = kind;
+        }
+
+        @Override
+        public void init(Mat frame, Rect box) {
+            tracker.init(input(frame), box);
+        }
+
+        @Override
+        public boolean update(Mat frame, Rect box) {
+            return tracker.update(input(frame), box);
+        }
+
+        @Override
+        public float score() {
+            if (tracker instanceof TrackerNano) {
+                return ((TrackerNano) tracker).getTrackingScore();
+            }
+            if (tracker instanceof TrackerVit) {
+                return ((TrackerVit) tracker).getTrackingScore();
+            }
+            // MIL only reports found or not
+            return 1f;
+        }
+
+        private Mat input(Mat frame) {
+            // The DNN trackers expect BGR, live frames are luma only
+            if (kind != Kind.MIL && frame.channels() == 1) {
+                Imgproc.cvtColor(frame, color, Imgproc.COLOR_GRAY2BGR);
+                return color;
+            }
+            return frame;
+        }
+
+        @Override
+        public void release() {
+            color.release();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.guagereaderapp;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.SurfaceView;
+import android.view.WindowManager;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+
+import org.opencv.android.CameraBridgeViewBase.CvCameraViewFrame;
+import org.opencv.android.CameraBridgeViewBase.CvCameraViewListener2;
+import org.opencv.android.FrameRing;
+import org.opencv.android.JavaCamera2View;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Continuous reading from the camera preview.
+ *
+ * Frames are offered to a {@link LiveReadingLoop}, which drops them while the model is busy, so
+ * the preview runs at the camera's rate and the overlay shows the latest reading together with
+ * the sustained readings per second and end-to-end latency.
+ */
+public class LiveReadingActivity extends AppCompatActivity implements CvCameraViewListener2 {
+    private static final String TAG = "LiveReadingActivity";
+
+    // Frames are letterboxed to 640x640 anyway, larger previews only cost copies
+    private static final int MAX_FRAME_WIDTH = 1280;
+    private static final int MAX_FRAME_HEIGHT = 720;
+
+    // NANO and VIT use their ONNX models from the files directory when present
+    private static final KeyframeTracker.Kind TRACKER_KIND = KeyframeTracker.Kind.MIL;
+
+    private static final Scalar GAUGE_COLOR = new Scalar(0, 255, 0, 255);
+    private static final Scalar CENTER_COLOR = new Scalar(255, 0, 0, 255);
+    private static final Scalar NEEDLE_COLOR = new Scalar(0, 0, 255, 255);
+
+    private JavaCamera2View cameraView;
+    private TextView overlayTextView;
+    private ModelRegistry.Lease<GaugeDetector> detectorLease;
+    // Null until the detector is loaded, read from the camera thread
+    private volatile LiveReadingLoop loop;
+    private RoiScheduler roiScheduler;
+    private KeyframeTracker tracker;
+    private ModelRegistry.PendingLease pendingLease;
+    private final InferenceExecutor inferenceExecutor = new InferenceExecutor();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        setContentView(R.layout.activity_live_reading);
+
+        overlayTextView = findViewById(R.id.liveTextView);
+        cameraView = findViewById(R.id.cameraView);
+        cameraView.setVisibility(SurfaceView.VISIBLE);
+        cameraView.setMaxFrameSize(MAX_FRAME_WIDTH, MAX_FRAME_HEIGHT);
+        // A one-frame ring keeps the preview on the newest frame when drawing falls behind
+        cameraView.setFrameRing(1, FrameRing.Policy.LATEST_ONLY, 1);
+        cameraView.setCvCameraViewListener(this);
+
+        // The preview runs while the detector loads, frames are offered once the loop exists
+        overlayTextView.setText("Loading model...");
+        pendingLease = ModelRegistry.getInstance(this).acquireDetectorAsync(
+                new ModelRegistry.LeaseCallback<GaugeDetector>() {
+                    @Override
+                    public void onLease(ModelRegistry.Lease<GaugeDetector> lease) {
+                        pendingLease = null;
+                        detectorLease = lease;
+                        tracker = new KeyframeTracker(TRACKER_KIND, getFilesDir());
+                        LiveReadingLoop started = new LiveReadingLoop(
+                                new GaugeReader(lease.get()), inferenceExecutor,
+                                LiveReadingActivity.this::onReading, tracker);
+                        roiScheduler = started.getRoiScheduler();
+                        overlayTextView.setText("");
+                        // Published last, the camera thread only looks at the loop
+                        loop = started;
+                    }
+
+                    @Override
+                    public void onError(IOException e) {
+                        pendingLease = null;
+                        Log.e(TAG, "Error initializing detector", e);
+                        Toast.makeText(LiveReadingActivity.this, "Error initializing model",
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+                });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // MainActivity asks for the permission before starting this screen
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Camera Permission Denied", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        cameraView.setCameraPermissionGranted();
+        cameraView.enableView();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Stops the camera thread, no frame is offered after this returns
+        cameraView.disableView();
+    }
+
+    @Override
+    public void onCameraViewStarted(int width, int height) {
+        Log.i(TAG, "Camera started at " + width + "x" + height);
+    }
+
+    @Override
+    public void onCameraViewStopped() {
+        LiveReadingLoop current = loop;
+        if (current == null) {
+            Log.i(TAG, "Camera stopped before the detector loaded");
+            return;
+        }
+        Log.i(TAG, "Camera stopped, " + current.getStats() + ", " + roiScheduler
+                + ", " + tracker + ", " + current.getMotionGate() + ", "
+                + cameraView.getFrameRing());
+    }
+
+    @Override
+    public Mat onCameraFrame(CvCameraViewFrame inputFrame) {
+        Mat rgba = inputFrame.rgba();
+        LiveReadingLoop current = loop;
+        if (current == null) {
+            return rgba;
+        }
+        // The model only needs luma, the RGBA conversion is for the preview alone
+        current.offer(inputFrame.gray());
+        GaugeReading reading = current.getLatest();
+        if (reading != null) {
+            drawReading(rgba, reading);
+        }
+        return rgba;
+    }
+
+    private void drawReading(Mat rgba, GaugeReading reading) {
+        if (reading.gaugeBox != null) {
+            Imgproc.rectangle(rgba,
+                    new org.opencv.core.Point(reading.gaugeBox.x, reading.gaugeBox.y),
+                    new org.opencv.core.Point(reading.gaugeBox.x + reading.gaugeBox.width,
+                            reading.gaugeBox.y + reading.gaugeBox.height),
+                    GAUGE_COLOR, 4);
+        }
+        org.opencv.core.Point center =
+                new org.opencv.core.Point(reading.center.x, reading.center.y);
+        Imgproc.circle(rgba, center, 10, CENTER_COLOR, 4);
+        Imgproc.line(rgba, center,
+                new org.opencv.core.Point(reading.needleTip.x, reading.needleTip.y),
+                NEEDLE_COLOR, 4);
+    }
+
+    private void onReading(GaugeReading reading, LiveStats stats) {
+        String value = reading != null
+                ? String.format(Locale.US, "Gauge Reading: %.1f\nAngle: %.1f°",
+                        reading.reading, reading.angle)
+                : "No gauge in view";
+        String text = value + "\n" + stats + "\n" + roiScheduler + "\n" + tracker;
+        runOnUiThread(() -> overlayTextView.setText(text));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pendingLease != null) {
+            pendingLease.cancel();
+            pendingLease = null;
+        }
+        if (loop != null) {
+            loop.stop();
+            loop = null;
+        }
+        if (detectorLease != null) {
+            inferenceExecutor.runOnWorker(detectorLease::close);
+            detectorLease = null;
+        }
+    }
+}
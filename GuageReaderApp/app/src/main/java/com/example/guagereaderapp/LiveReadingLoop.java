@@ -0,0 +1,182 @@
+package com.example.guagereaderapp;
+
+import android.util.Log;
+
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.MotionGate;
+import com.example.gaugecore.NeedleFilter;
+import com.example.gaugecore.Rectangle;
+
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Frame-dropping analysis loop between the camera thread and the inference worker.
+ *
+ * {@link #offer} never waits: if the previous frame is still being read the new one is
+ * dropped, otherwise it is copied and handed to the worker. The camera therefore keeps its own
+ * frame rate and the reading shown is always from the most recent frame the model could take.
+ * Once a gauge is found only the region chosen by the {@link RoiScheduler} is copied and read,
+ * and only keyframes go through the detector: the frames between them are served by a
+ * {@link KeyframeTracker} following the needle from the last keyframe. Readings are smoothed by
+ * a {@link NeedleFilter}; while its prediction is certain enough frames are not analysed at
+ * all and {@link #getLatest} extrapolates the needle instead. Frames in which a
+ * {@link MotionGate} sees no change inside the dial reuse the previous reading.
+ */
+public class LiveReadingLoop {
+    private static final String TAG = "LiveReadingLoop";
+
+    public interface Listener {
+        /**
+         * Called on the inference worker. {@code reading} is null when no gauge was found.
+         */
+        void onReading(GaugeReading reading, LiveStats stats);
+    }
+
+    private final GaugeReader reader;
+    private final InferenceExecutor executor;
+    private final Listener listener;
+    private final LiveStats stats = new LiveStats();
+    private final RoiScheduler roiScheduler = new RoiScheduler();
+    private final KeyframeTracker tracker;
+    private final NeedleFilter filter = new NeedleFilter();
+    // Only used from the camera thread
+    private final MotionGate motionGate = new MotionGate();
+    private final AtomicBoolean busy = new AtomicBoolean();
+    // Only written while busy is clear, only read by the worker while it is set
+    private final Mat snapshot = new Mat();
+    private volatile GaugeReading latest;
+    private volatile boolean stopped;
+
+    public LiveReadingLoop(GaugeReader reader, InferenceExecutor executor, Listener listener,
+                           KeyframeTracker tracker) {
+        this.reader = reader;
+        this.executor = executor;
+        this.listener = listener;
+        this.tracker = tracker;
+    }
+
+    /**
+     * Offers a camera frame, preferably the luma plane so only one byte per pixel is copied.
+     * Returns false if it was not analysed: the worker is busy, the filtered reading needs no
+     * new measurement yet, or nothing changed inside the dial.
+     */
+    public boolean offer(Mat frame) {
+        long arrived = System.nanoTime();
+        if (!stopped && filter.isSettled(arrived)) {
+            stats.onFramePredicted();
+            return false;
+        }
+        if (stopped || !busy.compareAndSet(false, true)) {
+            stats.onFrameDropped();
+            return false;
+        }
+        GaugeReading previous = latest;
+        if (previous != null && !motionGate.hasChanged(frame, previous.gaugeBox)) {
+            // Nothing moved in the dial, the needle is where it was. The filter is left alone,
+            // its own prediction is no measurement and must not make it more certain.
+            stats.onFrameGated();
+            busy.set(false);
+            return false;
+        }
+        stats.onFrameAccepted();
+        // The camera reuses its buffers once this callback returns
+        // Tracked frames have to be cut from the same window as their keyframe
+        boolean keyframe = tracker.isKeyframeDue();
+        Rectangle roi = keyframe
+                ? roiScheduler.next(frame.cols(), frame.rows())
+                : tracker.getWindow();
+        if (roi == null) {
+            frame.copyTo(snapshot);
+        } else {
+            Mat crop = frame.submat(roi.y, roi.y + roi.height, roi.x, roi.x + roi.width);
+            crop.copyTo(snapshot);
+            crop.release();
+        }
+        executor.runOnWorker(() -> analyse(roi, keyframe, arrived));
+        return true;
+    }
+
+    private void analyse(Rectangle roi, boolean keyframe, long arrived) {
+        try {
+            if (stopped) {
+                return;
+            }
+            GaugeReading reading;
+            if (keyframe) {
+                reading = reader.inferGauge(snapshot);
+                tracker.onKeyframe(snapshot, roi, reading);
+            } else {
+                // A lost track makes the next frame a keyframe, keep showing the last reading
+                reading = tracker.track(snapshot);
+                if (reading == null) {
+                    return;
+                }
+            }
+            if (reading != null && roi != null) {
+                reading = reading.translate(roi.x, roi.y);
+            }
+            if (keyframe) {
+                roiScheduler.update(reading);
+            }
+            if (reading != null) {
+                filter.correct(reading.angle, arrived);
+                reading = filter.predict(reading, arrived);
+            } else {
+                filter.reset();
+            }
+            latest = reading;
+            long now = System.nanoTime();
+            stats.onReading(now - arrived, now);
+            listener.onReading(reading, stats);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error reading frame", e);
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * The filtered reading of the most recently analysed frame, extrapolated to now, or null.
+     */
+    public GaugeReading getLatest() {
+        return filter.predict(latest, System.nanoTime());
+    }
+
+    public LiveStats getStats() {
+        return stats;
+    }
+
+    public RoiScheduler getRoiScheduler() {
+        return roiScheduler;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    public NeedleFilter getFilter() {
+        return filter;
+    }
+
+    public KeyframeTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * Stops accepting frames and frees the copy buffer, the tracker and the reader on the
+     * worker, once any frame in flight is done.
+     */
+    public void stop() {
+        stopped = true;
+        executor.runOnWorker(() -> {
+            snapshot.release();
+            tracker.release();
+            filter.release();
+            motionGate.release();
+            reader.release();
+        });
+    }
+}
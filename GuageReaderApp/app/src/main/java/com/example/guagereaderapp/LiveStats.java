@@ -0,0 +1,118 @@
+package com.example.guagereaderapp;
+
+import java.util.Locale;
+
+/**
+ * Throughput and latency of the live reading loop.
+ *
+ * Readings per second and latency are measured over consecutive one second windows, so the
+ * figures shown are what the loop sustains rather than a best case. Latency is end to end,
+ * from the camera delivering the frame to its reading being available.
+ */
+public class LiveStats {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private long frames;
+    private long dropped;
+    private long predicted;
+    private long gated;
+    private long readings;
+
+    private long windowStart = -1;
+    private int windowReadings;
+    private long windowLatencySum;
+    private long windowLatencyMax;
+
+    private float readingsPerSecond;
+    private float meanLatencyMs;
+    private float maxLatencyMs;
+
+    public synchronized void onFrameAccepted() {
+        frames++;
+    }
+
+    public synchronized void onFrameDropped() {
+        frames++;
+        dropped++;
+    }
+
+    /**
+     * A frame that was not analysed because the filtered reading was still certain enough.
+     */
+    public synchronized void onFramePredicted() {
+        frames++;
+        predicted++;
+    }
+
+    /**
+     * A frame that was not analysed because nothing changed inside the dial.
+     */
+    public synchronized void onFrameGated() {
+        frames++;
+        gated++;
+    }
+
+    public synchronized void onReading(long latencyNanos, long nowNanos) {
+        readings++;
+        if (windowStart < 0) {
+            // The first reading only opens the window, N readings after it span N intervals
+            windowStart = nowNanos;
+            return;
+        }
+        windowReadings++;
+        windowLatencySum += latencyNanos;
+        windowLatencyMax = Math.max(windowLatencyMax, latencyNanos);
+
+        long elapsed = nowNanos - windowStart;
+        if (elapsed >= WINDOW_NANOS) {
+            readingsPerSecond = windowReadings * 1e9f / elapsed;
+            meanLatencyMs = windowLatencySum / 1e6f / windowReadings;
+            maxLatencyMs = windowLatencyMax / 1e6f;
+            windowStart = nowNanos;
+            windowReadings = 0;
+            windowLatencySum = 0;
+            windowLatencyMax = 0;
+        }
+    }
+
+    public synchronized float getReadingsPerSecond() {
+        return readingsPerSecond;
+    }
+
+    public synchronized float getMeanLatencyMs() {
+        return meanLatencyMs;
+    }
+
+    public synchronized float getMaxLatencyMs() {
+        return maxLatencyMs;
+    }
+
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getPredicted() {
+        return predicted;
+    }
+
+    public synchronized long getGated() {
+        return gated;
+    }
+
+    public synchronized long getReadings() {
+        return readings;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+                "%.1f readings/s, latency %.0f ms (max %.0f ms), dropped %d, predicted %d,"
+                        + " gated %d of %d frames",
+                readingsPerSecond, meanLatencyMs, maxLatencyMs, dropped, predicted, gated,
+                frames);
+    }
+}
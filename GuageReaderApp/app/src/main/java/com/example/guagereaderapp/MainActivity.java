@@ -19,20 +19,36 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import android.Manifest;
 
+import com.example.gaugecore.GaugeDetector;
 import com.example.guagereaderapp.ml.GuageModel;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
-    private Button camerabtn, gallerybtn, inferbtn;
+    private Button camerabtn, gallerybtn, inferbtn, livebtn, batchbtn, detectorbtn;
     private ImageView imageView;
     private TextView textView;
-    private GuageModel model;
+    private ModelRegistry.Lease<GuageModel> modelLease;
+
+    // Decode just enough pixels for the letterboxed 640x640 model input
+    private static final int DECODE_TARGET_SIZE = 640;
+    private static final String STATE_IMAGE_URI = "image_uri";
+    private static final String STATE_CAPTURE_URI = "capture_uri";
+
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private Uri selectedImageUri;
+    private Uri captureUri;
+    private Bitmap selectedImage;
+    private int loadGeneration;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,6 +59,21 @@ public class MainActivity extends AppCompatActivity {
         initializeViews();
         setupClickListeners();
         initializeModel();
+
+        if (savedInstanceState != null) {
+            captureUri = savedInstanceState.getParcelable(STATE_CAPTURE_URI);
+            Uri imageUri = savedInstanceState.getParcelable(STATE_IMAGE_URI);
+            if (imageUri != null) {
+                loadImage(imageUri);
+            }
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putParcelable(STATE_IMAGE_URI, selectedImageUri);
+        outState.putParcelable(STATE_CAPTURE_URI, captureUri);
     }
 
     private void setupWindowInsets() {
@@ -57,6 +88,9 @@ public class MainActivity extends AppCompatActivity {
         camerabtn = findViewById(R.id.camerabtn);
         gallerybtn = findViewById(R.id.uploadbtn);
         inferbtn = findViewById(R.id.inferbtn);
+        livebtn = findViewById(R.id.livebtn);
+        batchbtn = findViewById(R.id.batchbtn);
+        detectorbtn = findViewById(R.id.detectorbtn);
         imageView = findViewById(R.id.imageView);
         textView = findViewById(R.id.textView);
     }
@@ -65,11 +99,34 @@ public class MainActivity extends AppCompatActivity {
         camerabtn.setOnClickListener(v -> requestCameraPermission());
         gallerybtn.setOnClickListener(v -> requestStoragePermissionAndOpenGallery());
         inferbtn.setOnClickListener(v -> handleInference());
+        livebtn.setOnClickListener(v -> requestLiveCameraPermission());
+        // The document pickers grant access themselves, no storage permission needed
+        batchbtn.setOnClickListener(v ->
+                startActivity(new Intent(MainActivity.this, BatchReadingActivity.class)));
+        detectorbtn.setOnClickListener(v -> switchDetectorBackend());
+        showDetectorBackend();
+    }
+
+    /**
+     * Cycles the engine that readings opened from here on run on. The choice is kept across
+     * restarts, so backends can be compared on the same device.
+     */
+    private void switchDetectorBackend() {
+        ModelRegistry registry = ModelRegistry.getInstance(this);
+        GaugeDetector.Backend[] backends = GaugeDetector.Backend.values();
+        GaugeDetector.Backend next =
+                backends[(registry.getDetectorBackend().ordinal() + 1) % backends.length];
+        registry.setDetectorBackend(next);
+        showDetectorBackend();
+    }
+
+    private void showDetectorBackend() {
+        detectorbtn.setText("Detector: " + ModelRegistry.getInstance(this).getDetectorBackend());
     }
 
     private void initializeModel() {
         try {
-            model = GuageModel.newInstance(this);
+            modelLease = ModelRegistry.getInstance(this).acquireGuageModel();
         } catch (IOException e) {
             Log.e("MainActivity", "Error loading model", e);
             Toast.makeText(this, "Error loading Guage model", Toast.LENGTH_SHORT).show();
@@ -77,17 +134,16 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void handleInference() {
-        if (imageView.getDrawable() == null) {
+        if (selectedImage == null) {
             Toast.makeText(this, "Please select an image first", Toast.LENGTH_SHORT).show();
             return;
         }
 
         try {
-            imageView.setDrawingCacheEnabled(true);
-            Bitmap bitmap = imageView.getDrawingCache();
+            // Only a token goes through the Intent, the pixels stay in process
+            String token = ImageRepository.getInstance().put(selectedImage);
             Intent inferenceIntent = new Intent(MainActivity.this, Inference.class);
-            inferenceIntent.putExtra("captured_image", bitmap);
-            imageView.setDrawingCacheEnabled(false);
+            inferenceIntent.putExtra(ImageRepository.EXTRA_IMAGE_TOKEN, token);
             startActivity(inferenceIntent);
         } catch (Exception e) {
             Log.e("MainActivity", "Error preparing image for inference", e);
@@ -99,6 +155,7 @@ public class MainActivity extends AppCompatActivity {
     private static final int GALLERY_REQUEST_CODE = 1000;
     private static final int CAMERA_PERMISSION_CODE = 100;
     private static final int CAMERA_REQUEST_CODE = 1888;
+    private static final int LIVE_CAMERA_PERMISSION_CODE = 101;
 
     private void requestStoragePermissionAndOpenGallery() {
         if (checkSelfPermission(Manifest.permission.READ_EXTERNAL_STORAGE)
@@ -129,6 +186,21 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void requestLiveCameraPermission() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.CAMERA},
+                    LIVE_CAMERA_PERMISSION_CODE);
+        } else {
+            openLiveReading();
+        }
+    }
+
+    private void openLiveReading() {
+        startActivity(new Intent(MainActivity.this, LiveReadingActivity.class));
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode,
                                            @NonNull String[] permissions,
@@ -142,6 +214,9 @@ public class MainActivity extends AppCompatActivity {
                             Toast.LENGTH_SHORT).show();
                     openCamera();
                     break;
+                case LIVE_CAMERA_PERMISSION_CODE:
+                    openLiveReading();
+                    break;
                 case STORAGE_PERMISSION_CODE:
                     Toast.makeText(this, "Storage Permission Granted",
                             Toast.LENGTH_SHORT).show();
@@ -149,7 +224,7 @@ public class MainActivity extends AppCompatActivity {
                     break;
             }
         } else {
-            String permission = requestCode == CAMERA_PERMISSION_CODE ? "Camera" : "Storage";
+            String permission = requestCode == STORAGE_PERMISSION_CODE ? "Storage" : "Camera";
             Toast.makeText(this, permission + " Permission Denied",
                     Toast.LENGTH_SHORT).show();
         }
@@ -158,7 +233,19 @@ public class MainActivity extends AppCompatActivity {
     private void openCamera() {
         Intent cameraIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
         try {
+            // Ask for the full-size capture in a file rather than the thumbnail in the extras
+            File captureDir = new File(getCacheDir(), "captures");
+            if (!captureDir.isDirectory() && !captureDir.mkdirs()) {
+                throw new IOException("Cannot create " + captureDir);
+            }
+            captureUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider",
+                    new File(captureDir, "capture.jpg"));
+            cameraIntent.putExtra(MediaStore.EXTRA_OUTPUT, captureUri);
+            cameraIntent.addFlags(Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
             startActivityForResult(cameraIntent, CAMERA_REQUEST_CODE);
+        } catch (IOException e) {
+            Log.e("MainActivity", "Cannot prepare capture file", e);
+            Toast.makeText(this, "Camera not available", Toast.LENGTH_SHORT).show();
         } catch (ActivityNotFoundException e) {
             Log.e("MainActivity", "Camera not available", e);
             Toast.makeText(this, "Camera not available", Toast.LENGTH_SHORT).show();
@@ -169,38 +256,53 @@ public class MainActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
 
-        if (resultCode != RESULT_OK || data == null) return;
+        if (resultCode != RESULT_OK) return;
 
-        try {
-            switch (requestCode) {
-                case GALLERY_REQUEST_CODE:
-                    Uri selectedImageUri = data.getData();
-                    if (selectedImageUri != null) {
-                        imageView.setImageURI(selectedImageUri);
-                    }
-                    break;
+        switch (requestCode) {
+            case GALLERY_REQUEST_CODE:
+                if (data != null && data.getData() != null) {
+                    loadImage(data.getData());
+                }
+                break;
+
+            case CAMERA_REQUEST_CODE:
+                // With EXTRA_OUTPUT the photo is in captureUri and data may be null
+                if (captureUri != null) {
+                    loadImage(captureUri);
+                }
+                break;
+        }
+    }
 
-                case CAMERA_REQUEST_CODE:
-                    Bundle extras = data.getExtras();
-                    if (extras != null) {
-                        Bitmap photo = (Bitmap) extras.get("data");
-                        if (photo != null) {
-                            imageView.setImageBitmap(photo);
-                        }
+    private void loadImage(Uri uri) {
+        selectedImageUri = uri;
+        final int generation = ++loadGeneration;
+        decodeExecutor.execute(() -> {
+            try {
+                Bitmap bitmap = SampledImageDecoder.decode(getContentResolver(), uri,
+                        DECODE_TARGET_SIZE);
+                runOnUiThread(() -> {
+                    // A newer selection may have been made while this one was decoding
+                    if (generation == loadGeneration) {
+                        selectedImage = bitmap;
+                        imageView.setImageBitmap(bitmap);
                     }
-                    break;
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e("MainActivity", "Error processing image", e);
+                runOnUiThread(() -> Toast.makeText(this, "Error processing image",
+                        Toast.LENGTH_SHORT).show());
             }
-        } catch (Exception e) {
-            Log.e("MainActivity", "Error processing image", e);
-            Toast.makeText(this, "Error processing image", Toast.LENGTH_SHORT).show();
-        }
+        });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (model != null) {
-            model.close();
+        decodeExecutor.shutdownNow();
+        if (modelLease != null) {
+            modelLease.close();
+            modelLease = null;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,538 @@
+package com.example.guagereaderapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.OpenCvDnnGaugeDetector;
+import com.example.guagereaderapp.ml.GuageModel;
+
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.MatOfByte;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.tensorflow.lite.Interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Application-scoped owner of the loaded models.
+ *
+ * The gauge detector is loaded, delegated and warmed up once per process and then handed
+ * out as {@link Lease}s, so rotating the screen or opening another reading does not pay the
+ * cold-start cost again. Which engine backs it is a persisted setting, see
+ * {@link #setDetectorBackend}, so backends can be compared on a device without a rebuild.
+ * Everything is closed from {@link #trim()} when the system asks the process to give memory
+ * back; leases still held at that point keep their model alive until they are released.
+ *
+ * Loading a model takes hundreds of milliseconds, so the UI acquires detectors with
+ * {@link #acquireDetectorAsync}, which loads on the inference worker and delivers the lease on
+ * the main thread. The blocking acquires must not be called from the main thread.
+ *
+ * A detector is not thread-safe, callers sharing a lease must not run it concurrently.
+ */
+public final class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+    public static final String GAUGE_MODEL_PATH = "gauge_model.tflite";
+    // Optional, the OpenCV DNN backend prefers it to the TFLite file when it is packaged
+    public static final String GAUGE_ONNX_MODEL_PATH = "gauge_model.onnx";
+    private static final String DNN_DETECTOR_KEY = "opencv-dnn";
+    private static final int DNN_INPUT_SIZE = 640;
+    private static final String PREFS_NAME = "model_registry";
+    private static final String PREF_DETECTOR_BACKEND = "detector_backend";
+    private static final String GUAGE_MODEL_BINDING = "GuageModel";
+    private static final int DEFAULT_WARM_UP_RUNS = 1;
+
+    private static ModelRegistry instance;
+
+    private final Context appContext;
+    private final Map<String, Entry<?>> entries = new HashMap<>();
+    private final SharedPreferences prefs;
+    private final DelegateTuner tuner;
+    private boolean tuning;
+    // Detector leases currently held, and ever taken, so tuning can wait for an idle model
+    private int activeDetectorLeases;
+    private long detectorLeasesTaken;
+    private int warmUpRuns = DEFAULT_WARM_UP_RUNS;
+    // Loads run on the inference worker, next to the inference they would compete with
+    private final InferenceExecutor loader = new InferenceExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives an asynchronously acquired lease on the main thread.
+     */
+    public interface LeaseCallback<T> {
+        void onLease(Lease<T> lease);
+
+        void onError(IOException e);
+    }
+
+    private ModelRegistry(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        tuner = new DelegateTuner(appContext);
+    }
+
+    public static synchronized ModelRegistry getInstance(Context context) {
+        if (instance == null) {
+            instance = new ModelRegistry(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Sets how many dummy passes are run on a freshly loaded interpreter before it is handed
+     * out. Zero disables the warm-up. Only affects models loaded after the call.
+     */
+    public synchronized void setWarmUpRuns(int runs) {
+        warmUpRuns = Math.max(0, runs);
+    }
+
+    public synchronized GaugeDetector.Backend getDetectorBackend() {
+        String name = prefs.getString(PREF_DETECTOR_BACKEND, null);
+        if (name != null) {
+            try {
+                return GaugeDetector.Backend.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Unknown detector backend " + name);
+            }
+        }
+        return GaugeDetector.Backend.TFLITE;
+    }
+
+    /**
+     * Persists the engine behind {@link #acquireDetector()} and starts loading it on the
+     * inference worker. Leases already handed out keep their detector; the previous backend's
+     * detector is closed once they are released.
+     */
+    public synchronized void setDetectorBackend(GaugeDetector.Backend backend) {
+        GaugeDetector.Backend previous = getDetectorBackend();
+        if (backend == previous) {
+            return;
+        }
+        prefs.edit().putString(PREF_DETECTOR_BACKEND, backend.name()).apply();
+        Entry<?> entry = entries.remove(detectorKey(previous));
+        if (entry != null) {
+            retire(entry);
+        }
+        Log.i(TAG, "Detector backend set to " + backend);
+        // Builds the new detector now, so the next screen does not wait for it
+        prewarmDetector(() -> { });
+    }
+
+    /**
+     * Loads the detector on the inference worker, unless it is cached, and hands the lease to
+     * {@code callback} on the main thread. A lease arriving after {@link PendingLease#cancel}
+     * is closed instead of delivered.
+     */
+    public PendingLease acquireDetectorAsync(LeaseCallback<GaugeDetector> callback) {
+        PendingLease pending = new PendingLease();
+        loader.runOnWorker(() -> {
+            if (pending.cancelled) {
+                return;
+            }
+            try {
+                Lease<GaugeDetector> lease = acquireDetector();
+                mainHandler.post(() -> {
+                    if (pending.cancelled) {
+                        loader.runOnWorker(lease::close);
+                    } else {
+                        callback.onLease(lease);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                // A broken model must not take the shared worker down with it
+                IOException error = e instanceof IOException
+                        ? (IOException) e : new IOException("Cannot load detector", e);
+                mainHandler.post(() -> {
+                    if (!pending.cancelled) {
+                        callback.onError(error);
+                    }
+                });
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Loads the detector on the inference worker so the first screen finds it warm, then runs
+     * {@code then} there.
+     */
+    public void prewarmDetector(Runnable then) {
+        loader.runOnWorker(() -> {
+            try (Lease<GaugeDetector> lease = acquireDetector()) {
+                Log.i(TAG, "Prewarmed " + lease.get().getBackend() + " detector");
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Cannot prewarm detector", e);
+            }
+            then.run();
+        });
+    }
+
+    /**
+     * Blocks while the detector loads, never call it from the main thread. The registry is
+     * not locked during the load.
+     */
+    public Lease<GaugeDetector> acquireDetector() throws IOException {
+        GaugeDetector.Backend backend;
+        String key;
+        synchronized (this) {
+            // Counted from the start, so the tuner does not calibrate against a load
+            activeDetectorLeases++;
+            detectorLeasesTaken++;
+            backend = getDetectorBackend();
+            key = detectorKey(backend);
+            @SuppressWarnings("unchecked")
+            Entry<GaugeDetector> entry = (Entry<GaugeDetector>) entries.get(key);
+            if (entry != null) {
+                entry.leases++;
+                return new Lease<>(this, entry);
+            }
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            // Building a DNN Net runs the network once, seconds on slow devices
+            synchronized (this) {
+                releaseDetectorSlot();
+            }
+            throw new IllegalStateException("Detector loaded on the main thread, use "
+                    + "acquireDetectorAsync");
+        }
+        Entry<GaugeDetector> loaded;
+        try {
+            loaded = backend == GaugeDetector.Backend.OPENCV_DNN
+                    ? loadDnnDetector() : loadTfliteDetector(GAUGE_MODEL_PATH);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                releaseDetectorSlot();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Entry<GaugeDetector> entry = (Entry<GaugeDetector>) entries.get(key);
+            if (entry != null) {
+                // Loaded concurrently by another caller, keep the cached one
+                loaded.close();
+            } else {
+                entry = loaded;
+                if (backend == getDetectorBackend()) {
+                    entries.put(key, entry);
+                } else {
+                    // The backend was switched meanwhile, serve this lease and let it go
+                    entry.retired = true;
+                }
+            }
+            entry.leases++;
+            return new Lease<>(this, entry);
+        }
+    }
+
+    private static String detectorKey(GaugeDetector.Backend backend) {
+        // The TFLite detector is keyed by its model, which the tuner retires on a new result
+        return backend == GaugeDetector.Backend.OPENCV_DNN ? DNN_DETECTOR_KEY : GAUGE_MODEL_PATH;
+    }
+
+    public synchronized Lease<GuageModel> acquireGuageModel() throws IOException {
+        @SuppressWarnings("unchecked")
+        Entry<GuageModel> entry = (Entry<GuageModel>) entries.get(GUAGE_MODEL_BINDING);
+        if (entry == null) {
+            long start = SystemClock.elapsedRealtime();
+            GuageModel model = GuageModel.newInstance(appContext);
+            Log.i(TAG, "Loaded " + GUAGE_MODEL_BINDING + " in "
+                    + (SystemClock.elapsedRealtime() - start) + " ms");
+            entry = new Entry<>(GUAGE_MODEL_BINDING, model, model::close);
+            entries.put(GUAGE_MODEL_BINDING, entry);
+        }
+        entry.leases++;
+        return new Lease<>(this, entry);
+    }
+
+    /**
+     * Drops every cached model. Idle models are closed immediately, leased ones as soon as
+     * their last lease is released. The next acquire loads a fresh copy.
+     */
+    public synchronized void trim() {
+        Iterator<Entry<?>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<?> entry = it.next();
+            it.remove();
+            retire(entry);
+        }
+    }
+
+    /**
+     * Calibrates the gauge model's delegate and thread count on a low priority background
+     * thread, unless this device already has a result for the current model. Calibration only
+     * starts while no detector is leased, and its timings are thrown away and taken again
+     * later if a detector was leased during the run, since that detector competes for the same
+     * cores and GPU. Until it finishes the model runs on the default configuration; a loaded
+     * interpreter is then retired, so the next acquire picks up the tuned one.
+     */
+    public synchronized void tuneInBackground() {
+        if (tuning) {
+            return;
+        }
+        tuning = true;
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                DelegateTuner.Config tuned;
+                long start;
+                boolean[] disturbed = new boolean[1];
+                do {
+                    long leasesTaken = awaitIdleDetector();
+                    disturbed[0] = false;
+                    start = SystemClock.elapsedRealtime();
+                    tuned = tuner.tuneIfNeeded(GAUGE_MODEL_PATH,
+                            loadModelFile(GAUGE_MODEL_PATH), () -> {
+                                synchronized (this) {
+                                    disturbed[0] = detectorLeasesTaken != leasesTaken;
+                                    return disturbed[0];
+                                }
+                            });
+                } while (tuned == null && disturbed[0]);
+                if (tuned != null) {
+                    Log.i(TAG, "Tuned " + GAUGE_MODEL_PATH + " in "
+                            + (SystemClock.elapsedRealtime() - start) + " ms");
+                    synchronized (this) {
+                        Entry<?> entry = entries.remove(GAUGE_MODEL_PATH);
+                        if (entry != null) {
+                            retire(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot tune " + GAUGE_MODEL_PATH, e);
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Tuning interrupted", e);
+            }
+        }, "delegate-tuner");
+        thread.start();
+    }
+
+    /**
+     * Blocks until no detector is leased, returning the lease count to compare against later.
+     */
+    private synchronized long awaitIdleDetector() throws InterruptedException {
+        while (activeDetectorLeases > 0) {
+            wait();
+        }
+        return detectorLeasesTaken;
+    }
+
+    private void retire(Entry<?> entry) {
+        entry.retired = true;
+        if (entry.leases == 0) {
+            entry.close();
+        }
+    }
+
+    private synchronized void release(Entry<?> entry) {
+        entry.leases--;
+        if (entry.value instanceof GaugeDetector) {
+            releaseDetectorSlot();
+        }
+        if (entry.retired && entry.leases == 0) {
+            entry.close();
+        }
+    }
+
+    private void releaseDetectorSlot() {
+        if (--activeDetectorLeases == 0) {
+            // Wakes the tuner waiting for an idle model
+            notifyAll();
+        }
+    }
+
+    private Entry<GaugeDetector> loadTfliteDetector(String modelPath) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        MappedByteBuffer model = loadModelFile(modelPath);
+        DelegateTuner.Config config = tuner.configFor(modelPath, model);
+
+        DelegateTuner.Handle handle;
+        try {
+            handle = DelegateTuner.Handle.open(model, config);
+        } catch (RuntimeException e) {
+            throw new IOException("Error creating " + config + " interpreter for " + modelPath,
+                    e);
+        }
+        GaugeDetector detector;
+        try {
+            detector = new TfliteGaugeDetector(handle);
+        } catch (RuntimeException e) {
+            handle.close();
+            throw new IOException("Unexpected model layout in " + modelPath, e);
+        }
+        long loaded = SystemClock.elapsedRealtime();
+        warmUp(handle.interpreter);
+        Log.i(TAG, "Loaded " + modelPath + " on " + config + " in " + (loaded - start)
+                + " ms, warm-up took " + (SystemClock.elapsedRealtime() - loaded) + " ms");
+
+        return new Entry<>(modelPath, detector, detector::close);
+    }
+
+    /**
+     * Reads the asset, builds the Net and runs it once, far too slow for the main thread; it
+     * only runs on the inference worker through {@link #acquireDetectorAsync} or
+     * {@link #prewarmDetector}.
+     */
+    private Entry<GaugeDetector> loadDnnDetector() throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        if (!OpenCVLoader.initDebug()) {
+            throw new IOException("OpenCV initialization failed");
+        }
+        // OpenCV's ONNX importer covers more of YOLOv8 than its TFLite one
+        boolean onnx = hasAsset(GAUGE_ONNX_MODEL_PATH);
+        String modelPath = onnx ? GAUGE_ONNX_MODEL_PATH : GAUGE_MODEL_PATH;
+        MatOfByte buffer = new MatOfByte(readAsset(modelPath));
+        GaugeDetector detector;
+        try {
+            Net net = onnx ? Dnn.readNetFromONNX(buffer) : Dnn.readNetFromTFLite(buffer);
+            // Creating the detector runs the network once, which doubles as its warm-up
+            detector = new OpenCvDnnGaugeDetector(net, DNN_INPUT_SIZE, !onnx);
+        } catch (RuntimeException e) {
+            throw new IOException("Error creating OpenCV DNN network for " + modelPath, e);
+        } finally {
+            buffer.release();
+        }
+        Log.i(TAG, "Loaded " + modelPath + " on OpenCV DNN in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        return new Entry<>(DNN_DETECTOR_KEY, detector, detector::close);
+    }
+
+    private boolean hasAsset(String path) throws IOException {
+        try (InputStream ignored = appContext.getAssets().open(path)) {
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private byte[] readAsset(String path) throws IOException {
+        try (InputStream in = appContext.getAssets().open(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private MappedByteBuffer loadModelFile(String modelPath) throws IOException {
+        try (AssetFileDescriptor fileDescriptor = appContext.getAssets().openFd(modelPath);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            FileChannel fileChannel = inputStream.getChannel();
+            long startOffset = fileDescriptor.getStartOffset();
+            long declaredLength = fileDescriptor.getDeclaredLength();
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+        }
+    }
+
+    private void warmUp(Interpreter interpreter) {
+        if (warmUpRuns == 0) {
+            return;
+        }
+        // Zero-filled tensors are enough to make the delegate compile its kernels
+        Object[] inputs = new Object[interpreter.getInputTensorCount()];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = allocateTensor(interpreter.getInputTensor(i).numBytes());
+        }
+        Map<Integer, Object> outputs = new HashMap<>();
+        for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+            outputs.put(i, allocateTensor(interpreter.getOutputTensor(i).numBytes()));
+        }
+        for (int run = 0; run < warmUpRuns; run++) {
+            interpreter.runForMultipleInputsOutputs(inputs, outputs);
+        }
+    }
+
+    private static ByteBuffer allocateTensor(int numBytes) {
+        return ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static final class Entry<T> {
+        final String key;
+        final T value;
+        final Runnable closer;
+        int leases;
+        boolean retired;
+
+        Entry(String key, T value, Runnable closer) {
+            this.key = key;
+            this.value = value;
+            this.closer = closer;
+        }
+
+        void close() {
+            Log.i(TAG, "Closing " + key);
+            closer.run();
+        }
+    }
+
+    /**
+     * An acquire still in flight, cancelled from the main thread.
+     */
+    public static final class PendingLease {
+        private volatile boolean cancelled;
+
+        /**
+         * Drops the acquire, e.g. when its screen is destroyed before the model loaded.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * A handle on a cached model. Closing the lease gives the model back to the registry, it
+     * does not close the model itself.
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final ModelRegistry registry;
+        private final Entry<T> entry;
+        private boolean released;
+
+        private Lease(ModelRegistry registry, Entry<T> entry) {
+            this.registry = registry;
+            this.entry = entry;
+        }
+
+        public T get() {
+            if (released) {
+                throw new IllegalStateException("Lease on " + entry.key + " already released");
+            }
+            return entry.value;
+        }
+
+        @Override
+        public void close() {
+            synchronized (registry) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                registry.release(entry);
+            }
+        }
+    }
+}
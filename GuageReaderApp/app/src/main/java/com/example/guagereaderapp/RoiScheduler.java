@@ -0,0 +1,113 @@
+package com.example.guagereaderapp;
+
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.Rectangle;
+
+import java.util.Locale;
+
+/**
+ * Decides which part of each live frame the detector looks at.
+ *
+ * Once a gauge has been found, frames are cropped to its last box plus a margin. The crop is
+ * letterboxed to the full model input, so the gauge is read at a higher effective resolution,
+ * and only the crop is copied and preprocessed. A full-frame detection runs every
+ * {@code redetectInterval} frames, whenever a crop loses the gauge and whenever the reading's
+ * confidence drops below {@code minConfidence}, so a moved or replaced gauge is picked up again.
+ *
+ * Thread-safe: regions are requested on the camera thread and results reported from the
+ * inference worker.
+ */
+public class RoiScheduler {
+    public static final int DEFAULT_REDETECT_INTERVAL = 15;
+    public static final float DEFAULT_MARGIN = 0.25f;
+    public static final float DEFAULT_MIN_CONFIDENCE = 0.6f;
+
+    // Crops smaller than this gain nothing from the letterbox and lose context
+    private static final int MIN_ROI_SIZE = 96;
+
+    private final int redetectInterval;
+    private final float margin;
+    private final float minConfidence;
+
+    private Rectangle lastBox;
+    private int framesSinceFullFrame;
+    private long fullFrames;
+    private long roiFrames;
+
+    public RoiScheduler() {
+        this(DEFAULT_REDETECT_INTERVAL, DEFAULT_MARGIN, DEFAULT_MIN_CONFIDENCE);
+    }
+
+    public RoiScheduler(int redetectInterval, float margin, float minConfidence) {
+        this.redetectInterval = redetectInterval;
+        this.margin = margin;
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Region of a {@code width} x {@code height} frame to read next, or null for the full
+     * frame.
+     */
+    public synchronized Rectangle next(int width, int height) {
+        if (lastBox == null || framesSinceFullFrame >= redetectInterval) {
+            fullFrames++;
+            framesSinceFullFrame = 0;
+            return null;
+        }
+        Rectangle roi = expand(lastBox, width, height);
+        if ((roi.width >= width && roi.height >= height) || roi.width <= 0 || roi.height <= 0) {
+            fullFrames++;
+            framesSinceFullFrame = 0;
+            return null;
+        }
+        roiFrames++;
+        framesSinceFullFrame++;
+        return roi;
+    }
+
+    /**
+     * Reports the reading for the region last returned by {@link #next}, in frame coordinates.
+     */
+    public synchronized void update(GaugeReading reading) {
+        if (reading == null || reading.confidence < minConfidence) {
+            // Lost or unsure, look at the whole frame next time
+            lastBox = null;
+        } else if (reading.gaugeBox != null) {
+            lastBox = reading.gaugeBox;
+        }
+        // A crop may hold the center and needle without the full dial, keep the previous box
+    }
+
+    private Rectangle expand(Rectangle box, int width, int height) {
+        int padX = Math.round(box.width * margin);
+        int padY = Math.round(box.height * margin);
+        int w = Math.max(box.width + 2 * padX, MIN_ROI_SIZE);
+        int h = Math.max(box.height + 2 * padY, MIN_ROI_SIZE);
+        int cx = box.x + box.width / 2;
+        int cy = box.y + box.height / 2;
+        int x1 = clamp(cx - w / 2, 0, width);
+        int y1 = clamp(cy - h / 2, 0, height);
+        int x2 = clamp(cx - w / 2 + w, 0, width);
+        int y2 = clamp(cy - h / 2 + h, 0, height);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return v < min ? min : (v > max ? max : v);
+    }
+
+    public synchronized long getFullFrames() {
+        return fullFrames;
+    }
+
+    public synchronized long getRoiFrames() {
+        return roiFrames;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = fullFrames + roiFrames;
+        return String.format(Locale.US, "ROI %.0f%% of %d reads",
+                total == 0 ? 0f : 100f * roiFrames / total, total);
+    }
+}
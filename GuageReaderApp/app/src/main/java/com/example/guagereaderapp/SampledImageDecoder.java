@@ -0,0 +1,91 @@
+package com.example.guagereaderapp;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes an image straight from its source, subsampled during the decode so the full
+ * resolution bitmap never exists in memory.
+ *
+ * The result's long side is at least {@code targetSize} (or the source size if smaller), which
+ * is all the letterboxed model input can use. API 28+ decodes to that exact size with
+ * {@link ImageDecoder}, older releases fall back to a power-of-two {@code inSampleSize}.
+ */
+public final class SampledImageDecoder {
+    private static final String TAG = "SampledImageDecoder";
+
+    private SampledImageDecoder() {
+    }
+
+    public static Bitmap decode(ContentResolver resolver, Uri uri, int targetSize)
+            throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        Bitmap bitmap;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            bitmap = decodeWithImageDecoder(resolver, uri, targetSize);
+        } else {
+            bitmap = decodeWithSampleSize(resolver, uri, targetSize);
+        }
+        Log.i(TAG, "Decoded " + bitmap.getWidth() + "x" + bitmap.getHeight() + " in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+        return bitmap;
+    }
+
+    private static Bitmap decodeWithImageDecoder(ContentResolver resolver, Uri uri,
+                                                 int targetSize) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            int width = info.getSize().getWidth();
+            int height = info.getSize().getHeight();
+            float scale = Math.min(1f, (float) targetSize / Math.max(width, height));
+            decoder.setTargetSize(Math.max(1, Math.round(width * scale)),
+                    Math.max(1, Math.round(height * scale)));
+            // OpenCV needs to read the pixels, hardware bitmaps cannot be mapped
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+        });
+    }
+
+    private static Bitmap decodeWithSampleSize(ContentResolver resolver, Uri uri, int targetSize)
+            throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Cannot read image bounds of " + uri);
+        }
+
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight, targetSize);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (bitmap == null) {
+                throw new IOException("Cannot decode " + uri);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Largest power of two that keeps the long side at or above {@code targetSize}.
+     */
+    static int sampleSizeFor(int width, int height, int targetSize) {
+        int longSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
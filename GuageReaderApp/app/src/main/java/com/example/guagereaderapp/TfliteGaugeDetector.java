@@ -0,0 +1,65 @@
+package com.example.guagereaderapp;
+
+import com.example.gaugecore.Detections;
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.YoloV8Decoder;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link GaugeDetector} on a TensorFlow Lite interpreter, with whatever delegate the
+ * {@link DelegateTuner} picked for it.
+ */
+public class TfliteGaugeDetector implements GaugeDetector {
+    // Ultralytics TFLite exports emit boxes normalised to the input size
+    private static final boolean NORMALIZED_BOXES = true;
+
+    private final DelegateTuner.Handle handle;
+    private final Interpreter tflite;
+    private final int[] inputShape;
+    private final YoloV8Decoder decoder;
+
+    /**
+     * Takes ownership of {@code handle}, closing the detector closes the interpreter.
+     */
+    public TfliteGaugeDetector(DelegateTuner.Handle handle) {
+        this.handle = handle;
+        tflite = handle.interpreter;
+        // Input tensor sized from the model rather than assumed
+        inputShape = tflite.getInputTensor(0).shape();
+        // Raw YOLOv8 head, [1, 4 + nc, 8400]
+        decoder = new YoloV8Decoder(tflite.getOutputTensor(0).shape());
+        if (NORMALIZED_BOXES) {
+            decoder.setCoordinateScale(inputShape[2]);
+        }
+    }
+
+    @Override
+    public Backend getBackend() {
+        return Backend.TFLITE;
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    @Override
+    public int getMaxDetections() {
+        return decoder.getNumAnchors();
+    }
+
+    @Override
+    public void detect(ByteBuffer input, float scoreThreshold, Detections out) {
+        input.rewind();
+        tflite.run(input, decoder.getOutputBuffer());
+        decoder.decode(scoreThreshold, out);
+    }
+
+    @Override
+    public void close() {
+        handle.close();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.guagereaderapp;
+
+import com.example.guagereaderapp.DelegateTuner.Config;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DelegateTunerTest {
+
+    @Test
+    public void tune_sweepsThreadsThenTriesXnnpackAtTheBestCount() {
+        List<Config> timed = new ArrayList<>();
+        Map<Config, Long> timings = DelegateTuner.tune(8, false, false, (config, best) -> {
+            timed.add(config);
+            // Two threads is fastest on the plain CPU kernels, XNNPACK beats it
+            if (config.xnnpack) {
+                return config.fp16 ? 30L : 40L;
+            }
+            return config.threads == 2 ? 50L : 100L;
+        });
+
+        assertEquals(Arrays.asList(
+                Config.cpu(1, false, false), Config.cpu(2, false, false),
+                Config.cpu(4, false, false), Config.cpu(8, false, false),
+                Config.cpu(2, true, false), Config.cpu(2, true, true)), timed);
+        assertEquals(Config.cpu(2, true, true), DelegateTuner.fastest(timings));
+    }
+
+    @Test
+    public void tune_doesNotOversubscribeSmallDevices() {
+        List<Config> timed = new ArrayList<>();
+        DelegateTuner.tune(2, false, false, (config, best) -> {
+            timed.add(config);
+            return 10L;
+        });
+
+        for (Config config : timed) {
+            assertTrue(config + " on 2 cores", config.threads <= 2);
+        }
+    }
+
+    @Test
+    public void tune_leavesOutDelegatesThatFail() {
+        Map<Config, Long> timings = DelegateTuner.tune(4, true, true, (config, best) -> {
+            if (config.backend == Config.Backend.NNAPI) {
+                throw new IllegalArgumentException("Unsupported op");
+            }
+            return config.backend == Config.Backend.GPU ? 5L : 100L;
+        });
+
+        assertFalse(timings.containsKey(Config.nnapi()));
+        assertEquals(Config.gpu(), DelegateTuner.fastest(timings));
+    }
+
+    @Test
+    public void tune_passesTheBestTimeSoFar() {
+        List<Long> bests = new ArrayList<>();
+        DelegateTuner.tune(1, false, false, (config, best) -> {
+            bests.add(best);
+            return config.xnnpack ? 20L : 70L;
+        });
+
+        assertEquals(Arrays.asList(Long.MAX_VALUE, 70L, 20L), bests);
+    }
+
+    @Test
+    public void parseEntry_needsTheSameDeviceAndModel() {
+        String entry = DelegateTuner.entry("pixel/7", "abc", Config.cpu(4, true, false));
+
+        assertEquals(Config.cpu(4, true, false),
+                DelegateTuner.parseEntry(entry, "pixel/7", "abc"));
+        assertNull(DelegateTuner.parseEntry(entry, "pixel/8", "abc"));
+        assertNull(DelegateTuner.parseEntry(entry, "pixel/7", "def"));
+        assertNull(DelegateTuner.parseEntry(null, "pixel/7", "abc"));
+        assertNull(DelegateTuner.parseEntry("pixel/7|abc|TPU:1:0:0", "pixel/7", "abc"));
+    }
+
+    @Test
+    public void config_survivesEncoding() {
+        for (Config config : Arrays.asList(Config.cpu(1, false, false),
+                Config.cpu(6, true, true), Config.gpu(), Config.nnapi())) {
+            assertEquals(config, Config.decode(config.encode()));
+        }
+        assertNull(Config.decode("CPU:0:1:0"));
+        assertNull(Config.decode("CPU:four:1:0"));
+    }
+
+    @Test
+    public void sha256_changesWithTheModel() {
+        ByteBuffer model = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        String hash = DelegateTuner.sha256(model);
+
+        assertEquals(64, hash.length());
+        assertEquals(hash, DelegateTuner.sha256(model));
+        assertFalse(hash.equals(DelegateTuner.sha256(ByteBuffer.wrap(new byte[]{1, 2, 4}))));
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.guagereaderapp;
+
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.Point;
+import com.example.gaugecore.Rectangle;
+
+import org.junit.Test;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyframeTrackerTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final File MODEL_DIR = new File("models");
+
+    /** Moves the box onto a scripted tip, the frames themselves are never looked at. */
+    private static final class FakeTipTracker implements KeyframeTracker.TipTracker {
+        Point tip;
+        boolean found = true;
+        float score = 1f;
+        boolean released;
+
+        @Override
+        public void init(Mat frame, Rect box) {
+        }
+
+        @Override
+        public boolean update(Mat frame, Rect box) {
+            if (tip != null) {
+                box.x = tip.x - box.width / 2;
+                box.y = tip.y - box.height / 2;
+            }
+            return found;
+        }
+
+        @Override
+        public float score() {
+            return score;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+    }
+
+    // Needle of length 100 pointing straight up from the dial center
+    private static GaugeReading reading() {
+        return new GaugeReading(50, 90, new Point(200, 200), new Point(200, 100),
+                new Rectangle(100, 100, 200, 200), 0.9f);
+    }
+
+    private static KeyframeTracker tracker(FakeTipTracker tip, int keyframeInterval) {
+        return new KeyframeTracker(KeyframeTracker.Kind.MIL, MODEL_DIR, keyframeInterval, 0.5f,
+                (kind, dir) -> tip);
+    }
+
+    private static void keyframe(KeyframeTracker tracker, GaugeReading reading) {
+        tracker.onKeyframe(null, WIDTH, HEIGHT, null, reading);
+    }
+
+    @Test
+    public void isKeyframeDue_everyIntervalWhileTracking() {
+        FakeTipTracker tip = new FakeTipTracker();
+        KeyframeTracker tracker = tracker(tip, 3);
+        assertTrue(tracker.isKeyframeDue());
+
+        keyframe(tracker, reading());
+        for (int i = 0; i < 3; i++) {
+            assertFalse(tracker.isKeyframeDue());
+            assertNotNull(tracker.track(null));
+        }
+
+        assertTrue(tracker.isKeyframeDue());
+        assertEquals(1, tracker.getDetectorFrames());
+        assertEquals(3, tracker.getTrackerFrames());
+    }
+
+    @Test
+    public void isKeyframeDue_whenTheKeyframeFoundNoGauge() {
+        KeyframeTracker tracker = tracker(new FakeTipTracker(), 10);
+
+        keyframe(tracker, null);
+
+        assertTrue(tracker.isKeyframeDue());
+        assertNull(tracker.track(null));
+    }
+
+    @Test
+    public void track_followsTheTipAroundTheDial() {
+        FakeTipTracker tip = new FakeTipTracker();
+        KeyframeTracker tracker = tracker(tip, 10);
+        keyframe(tracker, reading());
+
+        // Same length, a quarter turn clockwise
+        tip.tip = new Point(300, 200);
+        tip.score = 0.7f;
+        GaugeReading reading = tracker.track(null);
+
+        assertNotNull(reading);
+        assertEquals(300, reading.needleTip.x);
+        assertEquals(200, reading.needleTip.y);
+        assertEquals(0, reading.angle, 1e-9);
+        assertEquals(200, reading.center.x);
+        assertEquals(0.7f, reading.confidence, 0f);
+    }
+
+    @Test
+    public void track_losesTheTrackWhenTheNeedleLengthChanges() {
+        FakeTipTracker tip = new FakeTipTracker();
+        KeyframeTracker tracker = tracker(tip, 10);
+        keyframe(tracker, reading());
+
+        // 20% longer is still the needle
+        tip.tip = new Point(200, 80);
+        assertNotNull(tracker.track(null));
+        // 40% longer is something else
+        tip.tip = new Point(200, 60);
+        assertNull(tracker.track(null));
+
+        assertTrue(tracker.isKeyframeDue());
+        tip.tip = new Point(200, 100);
+        assertNull(tracker.track(null));
+    }
+
+    @Test
+    public void track_losesTheTrackOnALowScoreOrAMiss() {
+        FakeTipTracker tip = new FakeTipTracker();
+        KeyframeTracker tracker = tracker(tip, 10);
+
+        keyframe(tracker, reading());
+        tip.score = 0.4f;
+        assertNull(tracker.track(null));
+        assertTrue(tracker.isKeyframeDue());
+
+        tip.score = 1f;
+        keyframe(tracker, reading());
+        tip.found = false;
+        assertNull(tracker.track(null));
+        assertTrue(tracker.isKeyframeDue());
+    }
+
+    @Test
+    public void constructor_fallsBackToMilWithoutTheModelFiles() {
+        FakeTipTracker mil = new FakeTipTracker();
+        List<KeyframeTracker.Kind> requested = new ArrayList<>();
+
+        KeyframeTracker tracker = new KeyframeTracker(KeyframeTracker.Kind.NANO, MODEL_DIR, 10,
+                0.5f, (kind, dir) -> {
+                    requested.add(kind);
+                    return kind == KeyframeTracker.Kind.MIL ? mil : null;
+                });
+
+        assertEquals(KeyframeTracker.Kind.MIL, tracker.getKind());
+        assertEquals(2, requested.size());
+        assertEquals(KeyframeTracker.Kind.MIL, requested.get(1));
+        tracker.release();
+        assertTrue(mil.released);
+    }
+
+    @Test
+    public void constructor_fallsBackToMilWhenTheTrackerCannotBeCreated() {
+        FakeTipTracker mil = new FakeTipTracker();
+
+        KeyframeTracker tracker = new KeyframeTracker(KeyframeTracker.Kind.VIT, MODEL_DIR, 10,
+                0.5f, (kind, dir) -> {
+                    if (kind != KeyframeTracker.Kind.MIL) {
+                        throw new IllegalArgumentException("Cannot load " + kind);
+                    }
+                    return mil;
+                });
+
+        assertEquals(KeyframeTracker.Kind.MIL, tracker.getKind());
+    }
+
+    @Test
+    public void constructor_keepsTheRequestedKindWhenItCanBeCreated() {
+        KeyframeTracker tracker = new KeyframeTracker(KeyframeTracker.Kind.VIT, MODEL_DIR, 10,
+                0.5f, (kind, dir) -> new FakeTipTracker());
+
+        assertEquals(KeyframeTracker.Kind.VIT, tracker.getKind());
+    }
+}
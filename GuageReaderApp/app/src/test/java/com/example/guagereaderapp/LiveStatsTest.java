@@ -0,0 +1,50 @@
+package com.example.guagereaderapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LiveStatsTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void onReading_reportsRateAndLatencyPerWindow() {
+        LiveStats stats = new LiveStats();
+        // A reading opening the window, then ten more 100 ms apart, each 50 ms after its
+        // frame, the last one at 80 ms
+        for (int i = 0; i <= 10; i++) {
+            stats.onReading(i == 10 ? 80 * MS : 50 * MS, i * 100 * MS);
+        }
+
+        assertEquals(10f, stats.getReadingsPerSecond(), 1e-3f);
+        assertEquals(53f, stats.getMeanLatencyMs(), 1e-3f);
+        assertEquals(80f, stats.getMaxLatencyMs(), 1e-3f);
+        assertEquals(11, stats.getReadings());
+    }
+
+    @Test
+    public void onReading_keepsLastWindowUntilTheNextCompletes() {
+        LiveStats stats = new LiveStats();
+        stats.onReading(10 * MS, 0);
+        stats.onReading(10 * MS, 1000 * MS);
+        stats.onReading(500 * MS, 1500 * MS);
+
+        assertEquals(1f, stats.getReadingsPerSecond(), 1e-3f);
+        assertEquals(10f, stats.getMaxLatencyMs(), 1e-3f);
+    }
+
+    @Test
+    public void frames_countSkippedFramesByReason() {
+        LiveStats stats = new LiveStats();
+        stats.onFrameAccepted();
+        stats.onFrameDropped();
+        stats.onFrameDropped();
+        stats.onFramePredicted();
+        stats.onFrameGated();
+
+        assertEquals(5, stats.getFrames());
+        assertEquals(2, stats.getDropped());
+        assertEquals(1, stats.getPredicted());
+        assertEquals(1, stats.getGated());
+    }
+}
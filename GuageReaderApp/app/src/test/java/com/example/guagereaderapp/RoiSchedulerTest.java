@@ -0,0 +1,91 @@
+package com.example.guagereaderapp;
+
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.Point;
+import com.example.gaugecore.Rectangle;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiSchedulerTest {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+
+    private static GaugeReading reading(Rectangle box, float confidence) {
+        Point center = new Point(box.x + box.width / 2, box.y + box.height / 2);
+        return new GaugeReading(50, 90, center, new Point(center.x, box.y), box, confidence);
+    }
+
+    @Test
+    public void next_cropsAroundTheLastBoxWithAMargin() {
+        RoiScheduler scheduler = new RoiScheduler(15, 0.25f, 0.6f);
+        assertNull(scheduler.next(WIDTH, HEIGHT));
+        scheduler.update(reading(new Rectangle(400, 200, 200, 160), 0.9f));
+
+        Rectangle roi = scheduler.next(WIDTH, HEIGHT);
+        assertNotNull(roi);
+        assertEquals(350, roi.x);
+        assertEquals(160, roi.y);
+        assertEquals(300, roi.width);
+        assertEquals(240, roi.height);
+    }
+
+    @Test
+    public void next_clampsTheCropToTheFrame() {
+        RoiScheduler scheduler = new RoiScheduler(15, 0.25f, 0.6f);
+        scheduler.next(WIDTH, HEIGHT);
+        scheduler.update(reading(new Rectangle(0, 600, 100, 120), 0.9f));
+
+        Rectangle roi = scheduler.next(WIDTH, HEIGHT);
+        assertEquals(0, roi.x);
+        assertEquals(HEIGHT, roi.y + roi.height);
+    }
+
+    @Test
+    public void next_redetectsOnTheFullFrameEveryInterval() {
+        RoiScheduler scheduler = new RoiScheduler(3, 0.25f, 0.6f);
+        Rectangle box = new Rectangle(400, 200, 200, 160);
+        assertNull(scheduler.next(WIDTH, HEIGHT));
+        scheduler.update(reading(box, 0.9f));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(scheduler.next(WIDTH, HEIGHT));
+            scheduler.update(reading(box, 0.9f));
+        }
+        assertNull(scheduler.next(WIDTH, HEIGHT));
+        assertEquals(2, scheduler.getFullFrames());
+        assertEquals(3, scheduler.getRoiFrames());
+    }
+
+    @Test
+    public void update_fallsBackToTheFullFrameWhenConfidenceDrops() {
+        RoiScheduler scheduler = new RoiScheduler(15, 0.25f, 0.6f);
+        scheduler.next(WIDTH, HEIGHT);
+        scheduler.update(reading(new Rectangle(400, 200, 200, 160), 0.9f));
+        assertNotNull(scheduler.next(WIDTH, HEIGHT));
+
+        scheduler.update(reading(new Rectangle(400, 200, 200, 160), 0.5f));
+        assertNull(scheduler.next(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void update_fallsBackToTheFullFrameWhenTheGaugeIsLost() {
+        RoiScheduler scheduler = new RoiScheduler(15, 0.25f, 0.6f);
+        scheduler.next(WIDTH, HEIGHT);
+        scheduler.update(reading(new Rectangle(400, 200, 200, 160), 0.9f));
+        assertNotNull(scheduler.next(WIDTH, HEIGHT));
+
+        scheduler.update(null);
+        assertNull(scheduler.next(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void translate_shiftsEveryCoordinate() {
+        GaugeReading shifted = reading(new Rectangle(10, 20, 30, 40), 0.9f).translate(100, 200);
+        assertEquals(110, shifted.gaugeBox.x);
+        assertEquals(220, shifted.gaugeBox.y);
+        assertEquals(125, shifted.center.x);
+        assertEquals(240, shifted.center.y);
+        assertEquals(220, shifted.needleTip.y);
+    }
+}
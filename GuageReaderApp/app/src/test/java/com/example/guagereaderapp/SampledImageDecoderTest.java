@@ -0,0 +1,22 @@
+package com.example.guagereaderapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampledImageDecoderTest {
+
+    @Test
+    public void sampleSizeFor_keepsLongSideAtOrAboveTarget() {
+        // 12 MP capture: 4000 / 4 = 1000 >= 640, 4000 / 8 = 500 < 640
+        assertEquals(4, SampledImageDecoder.sampleSizeFor(4000, 3000, 640));
+        assertEquals(4, SampledImageDecoder.sampleSizeFor(3000, 4000, 640));
+        assertEquals(2, SampledImageDecoder.sampleSizeFor(1280, 720, 640));
+    }
+
+    @Test
+    public void sampleSizeFor_neverUpsamples() {
+        assertEquals(1, SampledImageDecoder.sampleSizeFor(640, 480, 640));
+        assertEquals(1, SampledImageDecoder.sampleSizeFor(200, 100, 640));
+    }
+}
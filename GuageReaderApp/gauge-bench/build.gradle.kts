@@ -0,0 +1,31 @@
+// JMH benchmarks of the :gauge-core hot paths on a desktop JVM.
+// Run with ./gradlew :gauge-bench:jmh, results land in build/reports/jmh/results.json.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":gauge-core"))
+    // Desktop OpenCV with its native library bundled, see OpenCvNatives
+    jmh(libs.opencv.desktop)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+    // Fixed settings, so runs on the same machine can be compared
+    benchmarkMode.set(listOf("avgt"))
+    timeUnit.set("us")
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+}
@@ -0,0 +1,66 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.utils.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Round trips through {@link Converters}, the glue every list-valued OpenCV call goes through:
+ * a Java list into a Mat and back out.
+ */
+@State(Scope.Thread)
+public class ConvertersBenchmark {
+
+    @Param({"16", "1024"})
+    public int size;
+
+    private List<Point> points;
+    private List<Float> floats;
+    private final List<Point> pointsOut = new ArrayList<>();
+    private final List<Float> floatsOut = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        OpenCvNatives.load();
+        Random random = new Random(7);
+        points = new ArrayList<>(size);
+        floats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new Point(random.nextInt(640), random.nextInt(640)));
+            floats.add(random.nextFloat());
+        }
+    }
+
+    @Benchmark
+    public List<Point> pointRoundTrip() {
+        Mat mat = Converters.vector_Point_to_Mat(points);
+        Converters.Mat_to_vector_Point(mat, pointsOut);
+        mat.release();
+        return pointsOut;
+    }
+
+    @Benchmark
+    public List<Point> point2fRoundTrip() {
+        Mat mat = Converters.vector_Point2f_to_Mat(points);
+        Converters.Mat_to_vector_Point2f(mat, pointsOut);
+        mat.release();
+        return pointsOut;
+    }
+
+    @Benchmark
+    public List<Float> floatRoundTrip() {
+        Mat mat = Converters.vector_float_to_Mat(floats);
+        Converters.Mat_to_vector_float(mat, floatsOut);
+        mat.release();
+        return floatsOut;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.gaugecore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Decoding the raw YOLOv8 head, from the array a non-TFLite backend hands over and from the
+ * direct buffer the interpreter writes into.
+ */
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    private static final int CLASSES = 3;
+    private static final int ANCHORS = 8400;
+    private static final int HITS = 60;
+    private static final float SCORE_THRESHOLD = 0.4f;
+
+    private YoloV8Decoder decoder;
+    private float[] head;
+    private Detections out;
+
+    @Setup
+    public void setUp() {
+        decoder = new YoloV8Decoder(new int[]{1, 4 + CLASSES, ANCHORS});
+        head = syntheticHead(new Random(7));
+        decoder.getOutputBuffer().asFloatBuffer().put(head);
+        out = new Detections(ANCHORS);
+    }
+
+    /**
+     * Background anchors score low, a few clusters of anchors clear the threshold, as on a
+     * frame with a gauge in view.
+     */
+    static float[] syntheticHead(Random random) {
+        float[] head = new float[(4 + CLASSES) * ANCHORS];
+        for (int a = 0; a < ANCHORS; a++) {
+            head[a] = random.nextFloat();
+            head[ANCHORS + a] = random.nextFloat();
+            head[2 * ANCHORS + a] = 0.02f + random.nextFloat() * 0.3f;
+            head[3 * ANCHORS + a] = 0.02f + random.nextFloat() * 0.3f;
+            for (int c = 0; c < CLASSES; c++) {
+                head[(4 + c) * ANCHORS + a] = random.nextFloat() * 0.3f;
+            }
+        }
+        for (int i = 0; i < HITS; i++) {
+            int a = random.nextInt(ANCHORS);
+            head[(4 + random.nextInt(CLASSES)) * ANCHORS + a] = 0.5f + random.nextFloat() * 0.5f;
+        }
+        return head;
+    }
+
+    @Benchmark
+    public Detections decodeArray() {
+        decoder.decode(head, SCORE_THRESHOLD, out);
+        return out;
+    }
+
+    @Benchmark
+    public Detections decodeBuffer() {
+        decoder.decode(SCORE_THRESHOLD, out);
+        return out;
+    }
+}
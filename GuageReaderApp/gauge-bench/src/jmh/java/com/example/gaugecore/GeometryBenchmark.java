@@ -0,0 +1,81 @@
+package com.example.gaugecore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Needle angle and dial reading math over a fixed set of needle positions, and pairing the
+ * detected parts of a 12-gauge panel into readings.
+ */
+@State(Scope.Thread)
+public class GeometryBenchmark {
+    private static final int NEEDLES = 1024;
+
+    private Point[] centers;
+    private Point[] tips;
+    private double[] angles;
+    private Detections panel;
+    private GaugeAssociator associator;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        centers = new Point[NEEDLES];
+        tips = new Point[NEEDLES];
+        angles = new double[NEEDLES];
+        for (int i = 0; i < NEEDLES; i++) {
+            centers[i] = new Point(200 + random.nextInt(240), 200 + random.nextInt(240));
+            tips[i] = new Point(centers[i].x + random.nextInt(161) - 80,
+                    centers[i].y + random.nextInt(161) - 80);
+            angles[i] = random.nextDouble() * 360;
+        }
+        panel = panel();
+        associator = new GaugeAssociator();
+    }
+
+    private static Detections panel() {
+        Detections kept = new Detections(64);
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                int x = 20 + col * 150;
+                int y = 20 + row * 150;
+                kept.add(x, y, x + 100, y + 100, 0.9f, GaugeReader.CLASS_GAUGE);
+                kept.add(x + 46, y + 46, x + 54, y + 54, 0.8f, GaugeReader.CLASS_CENTER);
+                kept.add(x + 76, y + 46, x + 84, y + 54, 0.7f, GaugeReader.CLASS_NEEDLE);
+            }
+        }
+        return kept;
+    }
+
+    @Benchmark
+    public void calculateAngle(Blackhole blackhole) {
+        for (int i = 0; i < NEEDLES; i++) {
+            blackhole.consume(GaugeReader.calculateAngle(centers[i], tips[i]));
+        }
+    }
+
+    @Benchmark
+    public void readingFromAngle(Blackhole blackhole) {
+        for (int i = 0; i < NEEDLES; i++) {
+            blackhole.consume(GaugeReader.readingFromAngle(angles[i]));
+        }
+    }
+
+    @Benchmark
+    public void readingFor(Blackhole blackhole) {
+        for (int i = 0; i < NEEDLES; i++) {
+            blackhole.consume(GaugeReader.readingFor(centers[i], tips[i], null, 0.9f));
+        }
+    }
+
+    @Benchmark
+    public List<GaugeReading> associatePanel() {
+        return associator.associate(panel);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.gaugecore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Class-aware NMS over jittered clusters of boxes, from a handful of candidates up to every
+ * anchor of the head.
+ */
+@State(Scope.Thread)
+public class NmsBenchmark {
+    private static final float SCORE_THRESHOLD = 0.25f;
+    private static final float IOU_THRESHOLD = 0.45f;
+    private static final int TOP_K = 300;
+
+    @Param({"100", "1000", "8400"})
+    public int candidates;
+
+    private NonMaxSuppression nms;
+    private Detections in;
+    private Detections out;
+
+    @Setup
+    public void setUp() {
+        nms = new NonMaxSuppression(IOU_THRESHOLD, TOP_K, 640, 640);
+        in = syntheticCandidates(candidates, new Random(7));
+        out = new Detections(TOP_K);
+    }
+
+    /**
+     * Clusters of jittered boxes around a handful of objects, like a real head output.
+     */
+    static Detections syntheticCandidates(int count, Random random) {
+        Detections d = new Detections(count);
+        for (int i = 0; i < count; i++) {
+            int object = random.nextInt(24);
+            float cx = 40 + (object % 6) * 100 + random.nextFloat() * 12;
+            float cy = 60 + (object / 6) * 140 + random.nextFloat() * 12;
+            float half = 20 + (object % 3) * 15 + random.nextFloat() * 6;
+            d.add(cx - half, cy - half, cx + half, cy + half, random.nextFloat(), object % 3);
+        }
+        return d;
+    }
+
+    @Benchmark
+    public Detections run() {
+        nms.run(in, SCORE_THRESHOLD, out);
+        return out;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Core;
+
+/**
+ * Loads the native library bundled with the desktop OpenCV artifact, once per JVM.
+ */
+final class OpenCvNatives {
+    private static boolean loaded;
+
+    private OpenCvNatives() {
+    }
+
+    static synchronized void load() {
+        if (!loaded) {
+            nu.pattern.OpenCV.loadLocally();
+            // Same random inputs on every run
+            Core.setRNGSeed(7);
+            loaded = true;
+        }
+    }
+}
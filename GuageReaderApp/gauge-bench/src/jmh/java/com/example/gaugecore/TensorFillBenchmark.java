@@ -0,0 +1,64 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Filling the 640x640x3 float input tensor, alone and behind the full preprocessing of a
+ * 1280x720 camera frame (gray conversion, gain, CLAHE and letterbox).
+ */
+@State(Scope.Thread)
+public class TensorFillBenchmark {
+    private static final int[] INPUT_SHAPE = {1, 640, 640, 3};
+
+    // 1 for the camera's Y plane, 4 for RGBA frames and Bitmaps
+    @Param({"1", "4"})
+    public int channels;
+
+    private TensorWriter writer;
+    private Mat image;
+    private Mat frame;
+    private GaugeReader.Preprocessor preprocessor;
+    private GaugeReader.Input input;
+
+    @Setup
+    public void setUp() {
+        OpenCvNatives.load();
+        writer = new TensorWriter(INPUT_SHAPE);
+        image = new Mat(640, 640, CvType.CV_8UC(channels));
+        Core.randu(image, 0, 256);
+        frame = new Mat(720, 1280, CvType.CV_8UC(channels));
+        Core.randu(frame, 0, 256);
+        preprocessor = new GaugeReader.Preprocessor();
+        input = new GaugeReader.Input(INPUT_SHAPE);
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        return writer.write(image);
+    }
+
+    @Benchmark
+    public ByteBuffer preprocessFrame() {
+        preprocessor.prepare(frame, input);
+        return input.tensorWriter.getBuffer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        writer.release();
+        image.release();
+        frame.release();
+        preprocessor.release();
+        input.release();
+    }
+}
@@ -0,0 +1,33 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // The app brings OpenCV through :opencv, desktop users through the openpnp bundle
+    compileOnly(libs.opencv.desktop)
+    testImplementation(libs.opencv.desktop)
+    testImplementation(libs.junit)
+}
+
+// The app runs this module on the vendored OpenCV 4.10 Java bindings in :opencv, while it is
+// compiled and tested here against the openpnp 4.9 desktop bundle. Compiling the sources once
+// more against the vendored bindings fails the build on an API the two versions disagree on.
+val compileAgainstAppOpenCv by tasks.registering(JavaCompile::class) {
+    group = "verification"
+    description = "Compiles the main sources against the app's vendored OpenCV Java bindings."
+    source = sourceSets.main.get().java
+    classpath = files()
+    options.sourcepath = rootProject.files("opencv/java/src")
+    // Only this module's classes, the bindings are just resolved
+    options.compilerArgs.add("-implicit:none")
+    destinationDirectory.set(layout.buildDirectory.dir("classes/java/appOpenCv"))
+}
+
+tasks.named("check") {
+    dependsOn(compileAgainstAppOpenCv)
+}
@@ -0,0 +1,44 @@
+package com.example.gaugecore;
+
+/**
+ * Fixed-capacity struct-of-arrays list of detector boxes.
+ *
+ * Boxes are corner coordinates. The arrays are allocated once and reused frame after frame,
+ * {@link #count} says how many entries are valid.
+ */
+public class Detections {
+    public final float[] x1;
+    public final float[] y1;
+    public final float[] x2;
+    public final float[] y2;
+    public final float[] scores;
+    public final int[] classIds;
+    public int count;
+
+    public Detections(int capacity) {
+        x1 = new float[capacity];
+        y1 = new float[capacity];
+        x2 = new float[capacity];
+        y2 = new float[capacity];
+        scores = new float[capacity];
+        classIds = new int[capacity];
+    }
+
+    public int capacity() {
+        return scores.length;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void add(float left, float top, float right, float bottom, float score, int classId) {
+        int i = count++;
+        x1[i] = left;
+        y1[i] = top;
+        x2[i] = right;
+        y2[i] = bottom;
+        scores[i] = score;
+        classIds[i] = classId;
+    }
+}
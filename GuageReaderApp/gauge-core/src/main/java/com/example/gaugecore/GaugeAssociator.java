@@ -0,0 +1,195 @@
+package com.example.gaugecore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns the detections of one frame into a reading per gauge.
+ *
+ * Every center and needle is assigned to the gauge box it lies in, with a sweep over x that
+ * keeps the boxes spanning the current x in a tree ordered by their top edge. Each point then
+ * looks up the nearest box starting above it, so a frame with n detections and disjoint boxes
+ * costs O(n log n) rather than comparing every point with every box. Once open boxes overlap,
+ * a point may have to walk every open box above it, up to O(n) per point. Where boxes overlap,
+ * the containing box whose top edge is closest above the point wins, which is the inner one
+ * for nested boxes.
+ *
+ * A gauge takes its highest scoring center and needle. Frames without any gauge box, such as
+ * a crop too tight to hold the whole dial, fall back to pairing the best center with the best
+ * needle, as a single-gauge image always has. Frames with gauge boxes never do, the best parts
+ * could belong to different gauges.
+ */
+public class GaugeAssociator {
+    // Event kinds, in the order they are handled at the same x so box edges are inclusive
+    private static final int OPEN = 0;
+    private static final int POINT = 1;
+    private static final int CLOSE = 2;
+
+    /**
+     * Readings for the gauges in {@code kept}, boxes in source coordinates sorted by score as
+     * NMS leaves them. The readings come in the same order as their gauge boxes.
+     */
+    public List<GaugeReading> associate(Detections kept) {
+        int[] gauges = new int[kept.count];
+        int[] points = new int[kept.count];
+        int gaugeCount = 0;
+        int pointCount = 0;
+        int bestCenter = -1;
+        int bestNeedle = -1;
+        for (int i = 0; i < kept.count; i++) {
+            switch (kept.classIds[i]) {
+                case GaugeReader.CLASS_GAUGE:
+                    gauges[gaugeCount++] = i;
+                    break;
+                case GaugeReader.CLASS_CENTER:
+                    points[pointCount++] = i;
+                    if (bestCenter < 0) {
+                        bestCenter = i;
+                    }
+                    break;
+                case GaugeReader.CLASS_NEEDLE:
+                    points[pointCount++] = i;
+                    if (bestNeedle < 0) {
+                        bestNeedle = i;
+                    }
+                    break;
+            }
+        }
+
+        int[] centers = new int[gaugeCount];
+        int[] needles = new int[gaugeCount];
+        Arrays.fill(centers, -1);
+        Arrays.fill(needles, -1);
+        assign(kept, gauges, gaugeCount, points, pointCount, centers, needles);
+
+        List<GaugeReading> readings = new ArrayList<>();
+        for (int g = 0; g < gaugeCount; g++) {
+            if (centers[g] >= 0 && needles[g] >= 0) {
+                readings.add(reading(kept, centers[g], needles[g], box(kept, gauges[g]),
+                        kept.scores[gauges[g]]));
+            }
+        }
+        if (gaugeCount == 0 && bestCenter >= 0 && bestNeedle >= 0) {
+            readings.add(reading(kept, bestCenter, bestNeedle, null, 1f));
+        }
+        return readings;
+    }
+
+    private static void assign(Detections kept, int[] gauges, int gaugeCount, int[] points,
+                               int pointCount, int[] centers, int[] needles) {
+        // Each event packs its x, its kind and the gauge or point it belongs to
+        int eventCount = 2 * gaugeCount + pointCount;
+        float[] xs = new float[eventCount];
+        int[] kinds = new int[eventCount];
+        int[] refs = new int[eventCount];
+        Integer[] order = new Integer[eventCount];
+        int e = 0;
+        for (int g = 0; g < gaugeCount; g++) {
+            xs[e] = kept.x1[gauges[g]];
+            kinds[e] = OPEN;
+            refs[e++] = g;
+            xs[e] = kept.x2[gauges[g]];
+            kinds[e] = CLOSE;
+            refs[e++] = g;
+        }
+        for (int p = 0; p < pointCount; p++) {
+            xs[e] = midX(kept, points[p]);
+            kinds[e] = POINT;
+            refs[e++] = points[p];
+        }
+        for (int i = 0; i < eventCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> xs[a] != xs[b]
+                ? Float.compare(xs[a], xs[b]) : Integer.compare(kinds[a], kinds[b]));
+
+        // Open boxes by top edge, the gauge index breaks ties
+        TreeMap<Long, Integer> open = new TreeMap<>();
+        boolean overlapping = false;
+        for (int i = 0; i < eventCount; i++) {
+            int event = order[i];
+            int ref = refs[event];
+            switch (kinds[event]) {
+                case OPEN:
+                    long openKey = key(kept.y1[gauges[ref]], ref);
+                    // While the open boxes are disjoint, an overlap shows up next to the new one
+                    overlapping = overlapping
+                            || overlaps(kept, gauges, ref, open.lowerEntry(openKey))
+                            || overlaps(kept, gauges, ref, open.higherEntry(openKey));
+                    open.put(openKey, ref);
+                    break;
+                case CLOSE:
+                    open.remove(key(kept.y1[gauges[ref]], ref));
+                    break;
+                default:
+                    int g = containing(kept, gauges, open, midY(kept, ref), overlapping);
+                    if (g < 0) {
+                        break;
+                    }
+                    int[] slots = kept.classIds[ref] == GaugeReader.CLASS_CENTER
+                            ? centers : needles;
+                    if (slots[g] < 0 || kept.scores[ref] > kept.scores[slots[g]]) {
+                        slots[g] = ref;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static boolean overlaps(Detections kept, int[] gauges, int g,
+                                    Map.Entry<Long, Integer> neighbour) {
+        if (neighbour == null) {
+            return false;
+        }
+        int other = neighbour.getValue();
+        return kept.y1[gauges[g]] <= kept.y2[gauges[other]]
+                && kept.y1[gauges[other]] <= kept.y2[gauges[g]];
+    }
+
+    private static int containing(Detections kept, int[] gauges, TreeMap<Long, Integer> open,
+                                  float y, boolean overlapping) {
+        for (Map.Entry<Long, Integer> entry
+                : open.headMap(key(y, Integer.MAX_VALUE), true).descendingMap().entrySet()) {
+            int g = entry.getValue();
+            if (kept.y1[gauges[g]] <= y && kept.y2[gauges[g]] >= y) {
+                return g;
+            }
+            if (!overlapping) {
+                // Disjoint boxes leave a single candidate, the nearest one starting above
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static long key(float y, int gauge) {
+        return (long) Math.floor(y) * (1L << 32) + gauge;
+    }
+
+    private static GaugeReading reading(Detections kept, int center, int needle,
+                                        Rectangle gaugeBox, float gaugeScore) {
+        float confidence = Math.min(gaugeScore,
+                Math.min(kept.scores[center], kept.scores[needle]));
+        return GaugeReader.readingFor(
+                new Point((int) midX(kept, center), (int) midY(kept, center)),
+                new Point((int) midX(kept, needle), (int) midY(kept, needle)),
+                gaugeBox, confidence);
+    }
+
+    private static Rectangle box(Detections kept, int i) {
+        int x1 = (int) kept.x1[i];
+        int y1 = (int) kept.y1[i];
+        return new Rectangle(x1, y1, (int) kept.x2[i] - x1, (int) kept.y2[i] - y1);
+    }
+
+    private static float midX(Detections kept, int i) {
+        return (float) ((int) kept.x1[i] + (int) kept.x2[i]) / 2;
+    }
+
+    private static float midY(Detections kept, int i) {
+        return (float) ((int) kept.y1[i] + (int) kept.y2[i]) / 2;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.gaugecore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs the YOLOv8 gauge model on a prepared input tensor and decodes its detections.
+ *
+ * Implementations wrap one inference engine each, so {@link GaugeReader} can switch between
+ * them without changing its preprocessing or geometry. Like the engines themselves, detectors
+ * are not thread-safe and must only be run from one thread at a time.
+ */
+public interface GaugeDetector {
+
+    /** Inference engines a detector can be backed by. */
+    enum Backend { TFLITE, OPENCV_DNN }
+
+    Backend getBackend();
+
+    /**
+     * The model's input shape, {@code [1, height, width, channels]}.
+     */
+    int[] getInputShape();
+
+    /**
+     * Upper bound on the detections a single call can produce.
+     */
+    int getMaxDetections();
+
+    /**
+     * Runs the model on {@code input}, a float32 NHWC tensor of {@link #getInputShape()} with
+     * values in [0, 1], and decodes detections scoring above {@code scoreThreshold} into
+     * {@code out}, in input pixels.
+     */
+    void detect(ByteBuffer input, float scoreThreshold, Detections out);
+
+    /**
+     * Frees the engine and its buffers.
+     */
+    void close();
+}
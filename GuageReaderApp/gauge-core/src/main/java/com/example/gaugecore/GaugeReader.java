@@ -0,0 +1,213 @@
+package com.example.gaugecore;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.CLAHE;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Preprocessing, model invocation and needle geometry for a single gauge image.
+ *
+ * The model itself runs behind a {@link GaugeDetector}, so the inference engine can be chosen
+ * at runtime. Plain Java on top of the OpenCV bindings, so the same reader runs in the app and
+ * on the desktop; OpenCV's native library must be loaded before the first reader is created.
+ * Instances keep their IO buffers between calls and are not thread-safe.
+ */
+public class GaugeReader {
+    private static final Logger LOG = Logger.getLogger(GaugeReader.class.getName());
+    private static final float CONFIDENCE_THRESHOLD = 0.4f;
+    private static final float NMS_IOU_THRESHOLD = 0.45f;
+    private static final int NMS_TOP_K = 300;
+
+    static final int CLASS_CENTER = 0;
+    static final int CLASS_GAUGE = 1;
+    static final int CLASS_NEEDLE = 2;
+
+    private final GaugeDetector detector;
+    private final GaugeAssociator associator = new GaugeAssociator();
+    private Preprocessor preprocessor;
+    private Input input;
+    private Detections detections;
+    private NonMaxSuppression nms;
+    private Detections kept;
+
+    /**
+     * The detector stays owned by the caller, releasing the reader does not close it.
+     */
+    public GaugeReader(GaugeDetector detector) {
+        this.detector = detector;
+        initializeIO();
+    }
+
+    private void initializeIO() {
+        input = newInput();
+        preprocessor = new Preprocessor();
+
+        detections = new Detections(detector.getMaxDetections());
+        nms = new NonMaxSuppression(NMS_IOU_THRESHOLD, NMS_TOP_K,
+                input.tensorWriter.getWidth(), input.tensorWriter.getHeight());
+        kept = new Detections(NMS_TOP_K);
+    }
+
+    /**
+     * Reads the most confidently detected gauge in an image or camera frame, either colour or
+     * a single luma channel such as the Y plane of a YUV image. Luma frames skip colour
+     * conversion entirely and may be strided views of the camera buffer. Coordinates in the
+     * result are frame pixels. The frame is only read during the call.
+     */
+    public GaugeReading inferGauge(Mat frame) {
+        return mostConfident(inferGauges(frame));
+    }
+
+    /**
+     * Reads every gauge in a camera frame with a single model run, see
+     * {@link #inferGauge(Mat)}.
+     */
+    public List<GaugeReading> inferGauges(Mat frame) {
+        preprocessor.prepare(frame, input);
+        return infer(input);
+    }
+
+    /**
+     * A model input of the detector's shape, for callers that prepare inputs on another
+     * thread with their own {@link Preprocessor}.
+     */
+    public Input newInput() {
+        return new Input(detector.getInputShape());
+    }
+
+    /**
+     * Runs the model on an input filled by {@link Preprocessor#prepare}. Coordinates in the
+     * result are pixels of the image the input was prepared from.
+     */
+    public List<GaugeReading> infer(Input input) {
+        detector.detect(input.tensorWriter.getBuffer(), CONFIDENCE_THRESHOLD, detections);
+        nms.run(detections, CONFIDENCE_THRESHOLD, kept);
+        input.letterbox.toSource(kept);
+        return associator.associate(kept);
+    }
+
+    private static GaugeReading mostConfident(List<GaugeReading> readings) {
+        GaugeReading best = null;
+        for (GaugeReading reading : readings) {
+            if (best == null || reading.confidence > best.confidence) {
+                best = reading;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Frees the native memory held by the reader. The detector is not closed.
+     */
+    public void release() {
+        preprocessor.release();
+        input.release();
+    }
+
+    /**
+     * Letterboxed model input for one image, together with the transform that maps detections
+     * back to its pixels. Not thread-safe, but may be handed from the thread that prepared it
+     * to the one running the model.
+     */
+    public static final class Input {
+        final TensorWriter tensorWriter;
+        final Letterbox letterbox;
+
+        Input(int[] shape) {
+            tensorWriter = new TensorWriter(shape);
+            letterbox = new Letterbox(tensorWriter.getWidth(), tensorWriter.getHeight());
+        }
+
+        public void release() {
+            letterbox.release();
+            tensorWriter.release();
+        }
+    }
+
+    /**
+     * Image enhancement and letterboxing into an {@link Input}, with the scratch Mats reused
+     * from one image to the next. Use one per thread; OpenCV must already be loaded.
+     */
+    public static final class Preprocessor {
+        private final MatArena matArena = new MatArena();
+        private final CLAHE clahe = Imgproc.createCLAHE(2.0, new Size(8, 8));
+
+        public void prepare(Mat frame, Input input) {
+            try (MatArena.Pass pass = matArena.begin()) {
+                preprocess(pass, frame, input);
+            }
+        }
+
+        private void preprocess(MatArena.Pass pass, Mat frame, Input input) {
+            int rows = frame.rows();
+            int cols = frame.cols();
+
+            // Single-channel frames, e.g. the camera's Y plane, are read in place
+            Mat gray = frame;
+            if (frame.channels() != 1) {
+                gray = pass.acquire(rows, cols, CvType.CV_8UC1);
+                Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+            }
+
+            // Enhanced preprocessing using OpenCV, gain and offset commute with the gray conversion
+            Mat enhanced = pass.acquire(rows, cols, CvType.CV_8UC1);
+            gray.convertTo(enhanced, -1, 1.2, 10);
+
+            Mat equalized = pass.acquire(rows, cols, CvType.CV_8UC1);
+            clahe.apply(enhanced, equalized);
+
+            // Keep the aspect ratio, boxes are mapped back through the same transform
+            input.tensorWriter.write(input.letterbox.apply(equalized));
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Mat arena: " + matArena.stats());
+            }
+        }
+
+        public void release() {
+            matArena.release();
+        }
+    }
+
+    /**
+     * Turns the needle geometry into a reading on the dial scale.
+     */
+    public static GaugeReading readingFor(Point center, Point needleTip, Rectangle gaugeBox,
+                                          float confidence) {
+        double angle = calculateAngle(center, needleTip);
+        return new GaugeReading(readingFromAngle(angle), angle, center, needleTip, gaugeBox,
+                confidence);
+    }
+
+    /**
+     * Value on the dial scale for a needle angle in degrees.
+     */
+    public static double readingFromAngle(double angle) {
+        return getReadingFromAngle(angle, 45, 515, 0, 100);
+    }
+
+    public static double calculateAngle(Point center, Point needleTip) {
+        double dx = needleTip.x - center.x;
+        double dy = center.y - needleTip.y;
+        double angle = Math.toDegrees(Math.atan2(dy, dx));
+        return (angle + 360) % 360;
+    }
+
+    public static double getReadingFromAngle(double angle, double minAngle, double maxAngle,
+                                             double minValue, double maxValue) {
+        if (angle > maxAngle) {
+            angle -= 360;
+        }
+
+        double angleRange = maxAngle - minAngle;
+        double valueRange = maxValue - minValue;
+        double reading = ((angle - minAngle) / angleRange) * valueRange + minValue;
+
+        return Math.round(reading * 10) / 10.0;
+    }
+}
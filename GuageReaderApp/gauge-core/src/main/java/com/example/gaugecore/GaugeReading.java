@@ -0,0 +1,36 @@
+package com.example.gaugecore;
+
+/**
+ * The value shown by one gauge, together with the needle geometry it was read from.
+ */
+public class GaugeReading {
+    public final double reading;
+    public final double angle;
+    public final Point center;
+    public final Point needleTip;
+    public final Rectangle gaugeBox;
+    // Lowest detector score among the parts the reading was built from
+    public final float confidence;
+
+    public GaugeReading(double reading, double angle, Point center,
+                        Point needleTip, Rectangle gaugeBox, float confidence) {
+        this.reading = reading;
+        this.angle = angle;
+        this.center = center;
+        this.needleTip = needleTip;
+        this.gaugeBox = gaugeBox;
+        this.confidence = confidence;
+    }
+
+    /**
+     * The same reading with its coordinates shifted, e.g. from a crop back to the frame.
+     */
+    public GaugeReading translate(int dx, int dy) {
+        return new GaugeReading(reading, angle,
+                new Point(center.x + dx, center.y + dy),
+                new Point(needleTip.x + dx, needleTip.y + dy),
+                gaugeBox == null ? null : new Rectangle(gaugeBox.x + dx, gaugeBox.y + dy,
+                        gaugeBox.width, gaugeBox.height),
+                confidence);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Aspect-preserving resize into the model input, padding the short side, as YOLOv8 was
+ * trained with.
+ *
+ * The scale-and-pad affine transform is computed once per source geometry and cached along
+ * with its inverse, which maps detector boxes back to source pixels. The destination Mat is
+ * allocated once, so each frame is a single {@code warpAffine} with no new Mats.
+ */
+public class Letterbox {
+    private static final Scalar PAD_VALUE = new Scalar(114, 114, 114, 255);
+
+    private final int dstWidth;
+    private final int dstHeight;
+    private final Size dstSize;
+    private final Mat dst = new Mat();
+    private final Mat transform = new Mat(2, 3, CvType.CV_64F);
+
+    private int srcWidth = -1;
+    private int srcHeight = -1;
+    private float scale;
+    private float padX;
+    private float padY;
+
+    public Letterbox(int dstWidth, int dstHeight) {
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+        dstSize = new Size(dstWidth, dstHeight);
+    }
+
+    /**
+     * Letterboxes {@code src} into the shared destination Mat, which is returned. The result
+     * is only valid until the next call.
+     */
+    public Mat apply(Mat src) {
+        if (src.cols() != srcWidth || src.rows() != srcHeight) {
+            updateTransform(src.cols(), src.rows());
+        }
+        if (dst.rows() != dstHeight || dst.cols() != dstWidth || dst.type() != src.type()) {
+            dst.create(dstHeight, dstWidth, src.type());
+        }
+        Imgproc.warpAffine(src, dst, transform, dstSize, Imgproc.INTER_LINEAR,
+                Core.BORDER_CONSTANT, PAD_VALUE);
+        return dst;
+    }
+
+    private void updateTransform(int width, int height) {
+        srcWidth = width;
+        srcHeight = height;
+        scale = Math.min((float) dstWidth / width, (float) dstHeight / height);
+        padX = (dstWidth - width * scale) / 2f;
+        padY = (dstHeight - height * scale) / 2f;
+        transform.put(0, 0,
+                scale, 0, padX,
+                0, scale, padY);
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public float getPadX() {
+        return padX;
+    }
+
+    public float getPadY() {
+        return padY;
+    }
+
+    public float toSourceX(float x) {
+        return clamp((x - padX) / scale, srcWidth);
+    }
+
+    public float toSourceY(float y) {
+        return clamp((y - padY) / scale, srcHeight);
+    }
+
+    /**
+     * Maps every box in {@code detections} from model input pixels back to source pixels,
+     * clipped to the source image.
+     */
+    public void toSource(Detections detections) {
+        for (int i = 0; i < detections.count; i++) {
+            detections.x1[i] = toSourceX(detections.x1[i]);
+            detections.y1[i] = toSourceY(detections.y1[i]);
+            detections.x2[i] = toSourceX(detections.x2[i]);
+            detections.y2[i] = toSourceY(detections.y2[i]);
+        }
+    }
+
+    public void release() {
+        dst.release();
+        transform.release();
+    }
+
+    private static float clamp(float v, int max) {
+        return v < 0 ? 0 : (v > max ? max : v);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Pool of native Mats keyed by size and type, handed out for one pipeline pass at a time.
+ *
+ * Mats obtained from a {@link Pass} go back to the pool when the pass is closed, instead of
+ * waiting for {@code Mat.finalize()} to free their native memory. Once every shape a pipeline
+ * uses has been seen, passes are served entirely from the pool, which the hit and miss
+ * counters make visible. Inputs of many different sizes, such as a batch of photos, would pin
+ * Mats for every size seen, so only the most recently used sizes are kept and the rest are
+ * freed when a pass closes. Not thread-safe; use one arena per pipeline thread.
+ */
+public class MatArena {
+    // A pass of the preprocessor uses one or two sizes, this keeps a few images' worth
+    private static final int DEFAULT_MAX_BUCKETS = 4;
+
+    private final int maxBuckets;
+    private final ArrayList<Bucket> buckets = new ArrayList<>();
+    private final ArrayList<Mat> inUse = new ArrayList<>();
+    private final Pass pass = new Pass();
+    private long passes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public MatArena() {
+        this(DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param maxBuckets number of distinct sizes and types kept between passes
+     */
+    public MatArena(int maxBuckets) {
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("Must keep at least one bucket");
+        }
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Starts a pipeline pass. Every Mat acquired from the returned pass is recycled when it
+     * is closed.
+     */
+    public Pass begin() {
+        if (pass.open) {
+            throw new IllegalStateException("Previous pass was not closed");
+        }
+        pass.open = true;
+        passes++;
+        return pass;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of sizes whose Mats were freed to stay within the bucket limit.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Number of Mats currently owned by the pool, free or in use.
+     */
+    public int size() {
+        int size = inUse.size();
+        for (int i = 0; i < buckets.size(); i++) {
+            size += buckets.get(i).free.size();
+        }
+        return size;
+    }
+
+    public String stats() {
+        return String.format(Locale.US, "hits %d, misses %d, evictions %d, pooled %d", hits,
+                misses, evictions, size());
+    }
+
+    /**
+     * Frees the native memory of every pooled Mat.
+     */
+    public void release() {
+        for (int i = 0; i < buckets.size(); i++) {
+            for (Mat mat : buckets.get(i).free) {
+                mat.release();
+            }
+        }
+        buckets.clear();
+        for (int i = 0; i < inUse.size(); i++) {
+            inUse.get(i).release();
+        }
+        inUse.clear();
+    }
+
+    private Mat acquire(int rows, int cols, int type) {
+        Bucket bucket = bucket(rows, cols, type);
+        Mat mat = bucket.free.poll();
+        if (mat != null) {
+            hits++;
+        } else {
+            misses++;
+            mat = new Mat(rows, cols, type);
+        }
+        inUse.add(mat);
+        return mat;
+    }
+
+    private void recycle() {
+        for (int i = 0; i < inUse.size(); i++) {
+            Mat mat = inUse.get(i);
+            // An OpenCV call may have reallocated the Mat, file it under what it is now
+            if (mat.empty()) {
+                mat.release();
+            } else {
+                bucket(mat.rows(), mat.cols(), mat.type()).free.push(mat);
+            }
+        }
+        inUse.clear();
+        while (buckets.size() > maxBuckets) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        int oldest = 0;
+        for (int i = 1; i < buckets.size(); i++) {
+            if (buckets.get(i).lastPass < buckets.get(oldest).lastPass) {
+                oldest = i;
+            }
+        }
+        for (Mat mat : buckets.remove(oldest).free) {
+            mat.release();
+        }
+        evictions++;
+    }
+
+    private Bucket bucket(int rows, int cols, int type) {
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket.rows == rows && bucket.cols == cols && bucket.type == type) {
+                bucket.lastPass = passes;
+                return bucket;
+            }
+        }
+        Bucket bucket = new Bucket(rows, cols, type);
+        bucket.lastPass = passes;
+        buckets.add(bucket);
+        return bucket;
+    }
+
+    public class Pass implements AutoCloseable {
+        private boolean open;
+
+        /**
+         * Returns a Mat of exactly this size and type. Its contents are undefined.
+         */
+        public Mat acquire(int rows, int cols, int type) {
+            if (!open) {
+                throw new IllegalStateException("Pass is closed");
+            }
+            return MatArena.this.acquire(rows, cols, type);
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                recycle();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        final int rows;
+        final int cols;
+        final int type;
+        final ArrayDeque<Mat> free = new ArrayDeque<>();
+        long lastPass;
+
+        Bucket(int rows, int cols, int type) {
+            this.rows = rows;
+            this.cols = cols;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.gaugecore;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Locale;
+
+/**
+ * Cheap change detector over the gauge's box, deciding whether a frame needs to be read at all.
+ *
+ * The box is shrunk to a small thumbnail and compared with the thumbnail of the last frame
+ * that was read. Only when more than {@code changedFraction} of its pixels differ by more than
+ * {@code pixelThreshold} grey levels has the needle (or the light, or the camera) moved. The
+ * reference is not refreshed by gated frames, so slow drift still adds up to a change, and a
+ * frame is let through after {@code maxGatedFrames} gated ones in any case.
+ *
+ * Not thread-safe; call from the camera thread only.
+ */
+public class MotionGate {
+    public static final int DEFAULT_THUMBNAIL_SIZE = 64;
+    public static final int DEFAULT_PIXEL_THRESHOLD = 12;
+    // About 20 thumbnail pixels, a needle moving by its own width changes several times that
+    public static final float DEFAULT_CHANGED_FRACTION = 0.005f;
+    public static final int DEFAULT_MAX_GATED_FRAMES = 30;
+
+    // Box changes up to this share of its size are detector jitter
+    private static final float BOX_TOLERANCE = 0.05f;
+
+    private final Size thumbnailSize;
+    private final int pixelThreshold;
+    private final float changedFraction;
+    private final int maxGatedFrames;
+
+    private final Mat gray = new Mat();
+    private final Mat current = new Mat();
+    private final Mat reference = new Mat();
+    private final Mat diff = new Mat();
+    private Rectangle referenceBox;
+    private int gatedRun;
+
+    private long passed;
+    private long gated;
+
+    public MotionGate() {
+        this(DEFAULT_THUMBNAIL_SIZE, DEFAULT_PIXEL_THRESHOLD, DEFAULT_CHANGED_FRACTION,
+                DEFAULT_MAX_GATED_FRAMES);
+    }
+
+    public MotionGate(int thumbnailSize, int pixelThreshold, float changedFraction,
+                      int maxGatedFrames) {
+        this.thumbnailSize = new Size(thumbnailSize, thumbnailSize);
+        this.pixelThreshold = pixelThreshold;
+        this.changedFraction = changedFraction;
+        this.maxGatedFrames = maxGatedFrames;
+    }
+
+    /**
+     * Whether {@code box} of {@code frame} changed since the last frame this returned true
+     * for. A frame it returns true for becomes the new reference. Always true without a box or
+     * when the box moved by more than detector jitter.
+     */
+    public boolean hasChanged(Mat frame, Rectangle box) {
+        Rectangle clipped = box == null ? null : clip(box, frame.cols(), frame.rows());
+        if (clipped == null) {
+            referenceBox = null;
+            passed++;
+            return true;
+        }
+        // Detector boxes jitter by a few pixels, keep comparing the same region until it moves
+        Rectangle region = referenceBox != null && isNear(clipped, referenceBox)
+                ? referenceBox : clipped;
+        thumbnail(frame, region, current);
+        if (region != referenceBox || gatedRun >= maxGatedFrames || changed()) {
+            current.copyTo(reference);
+            referenceBox = region;
+            gatedRun = 0;
+            passed++;
+            return true;
+        }
+        gatedRun++;
+        gated++;
+        return false;
+    }
+
+    private boolean changed() {
+        Core.absdiff(current, reference, diff);
+        Imgproc.threshold(diff, diff, pixelThreshold, 255, Imgproc.THRESH_BINARY);
+        return Core.countNonZero(diff) > changedFraction * diff.total();
+    }
+
+    private void thumbnail(Mat frame, Rectangle box, Mat dst) {
+        Mat crop = frame.submat(box.y, box.y + box.height, box.x, box.x + box.width);
+        Mat src = crop;
+        if (crop.channels() > 1) {
+            Imgproc.cvtColor(crop, gray, crop.channels() == 4
+                    ? Imgproc.COLOR_RGBA2GRAY : Imgproc.COLOR_BGR2GRAY);
+            src = gray;
+        }
+        // Area averaging also smooths away sensor noise
+        Imgproc.resize(src, dst, thumbnailSize, 0, 0, Imgproc.INTER_AREA);
+        crop.release();
+    }
+
+    private static Rectangle clip(Rectangle box, int width, int height) {
+        int x1 = Math.max(0, box.x);
+        int y1 = Math.max(0, box.y);
+        int x2 = Math.min(width, box.x + box.width);
+        int y2 = Math.min(height, box.y + box.height);
+        return x2 > x1 && y2 > y1 ? new Rectangle(x1, y1, x2 - x1, y2 - y1) : null;
+    }
+
+    static boolean isNear(Rectangle a, Rectangle b) {
+        int tolX = Math.max(2, Math.round(b.width * BOX_TOLERANCE));
+        int tolY = Math.max(2, Math.round(b.height * BOX_TOLERANCE));
+        return Math.abs(a.x - b.x) <= tolX && Math.abs(a.y - b.y) <= tolY
+                && Math.abs(a.width - b.width) <= tolX && Math.abs(a.height - b.height) <= tolY;
+    }
+
+    public long getPassed() {
+        return passed;
+    }
+
+    public long getGated() {
+        return gated;
+    }
+
+    @Override
+    public String toString() {
+        long total = passed + gated;
+        return String.format(Locale.US, "gated %.0f%% of %d frames",
+                total == 0 ? 0f : 100f * gated / total, total);
+    }
+
+    public void release() {
+        gray.release();
+        current.release();
+        reference.release();
+        diff.release();
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.gaugecore;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.video.KalmanFilter;
+
+/**
+ * Constant-velocity Kalman filter over the needle angle of one gauge.
+ *
+ * Measured angles are smoothed, and between measurements the angle is extrapolated from the
+ * estimated velocity, so a value can be shown for every camera frame. The state is kept
+ * unwrapped: each measurement is taken as the nearest turn to the prediction, so a needle
+ * sweeping past 0/360 degrees does not look like a jump across the dial.
+ *
+ * While the predicted angle variance stays below {@code maxVariance} the filter is
+ * {@link #isSettled settled} and the caller may skip inference. The variance grows with the
+ * time since the last measurement, so inference resumes on its own, and sooner for a moving
+ * needle whose velocity is less certain.
+ *
+ * Angles are in degrees and velocities in degrees per second. Thread-safe.
+ */
+public class NeedleFilter {
+    public static final double DEFAULT_PROCESS_NOISE = 50;
+    public static final double DEFAULT_MEASUREMENT_NOISE = 4;
+    public static final double DEFAULT_MAX_VARIANCE = 2;
+
+    // A measurement this far from the prediction is a different needle, or a misread
+    private static final double MAX_INNOVATION = 45;
+    // Without a measurement for this long the state is worthless
+    private static final long MAX_PREDICTION_NANOS = 1_000_000_000L;
+    private static final double INITIAL_VELOCITY_VARIANCE = 900;
+
+    private final double processNoise;
+    private final double measurementNoise;
+    private final double maxVariance;
+    private final KalmanFilter kalman = new KalmanFilter(2, 1, 0, CvType.CV_32F);
+    private final Mat transition = new Mat(2, 2, CvType.CV_32F);
+    private final Mat noise = new Mat(2, 2, CvType.CV_32F);
+    private final Mat measurement = new Mat(1, 1, CvType.CV_32F);
+    // Refilled on every restart instead of handing the filter new Mats
+    private final Mat restartState = new Mat(2, 1, CvType.CV_32F);
+    private final Mat restartCovariance = new Mat(2, 2, CvType.CV_32F);
+    private final Mat measurementMatrix = new Mat(1, 2, CvType.CV_32F);
+    private final Mat measurementNoiseCov = new Mat(1, 1, CvType.CV_32F);
+    private final float[] values = new float[4];
+
+    // Copy of the posterior, so predictions need no native calls
+    private boolean initialized;
+    private long lastNanos;
+    private double angle;
+    private double velocity;
+    private double p00;
+    private double p01;
+    private double p11;
+
+    private long measurements;
+    private long rejected;
+
+    public NeedleFilter() {
+        this(DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE, DEFAULT_MAX_VARIANCE);
+    }
+
+    /**
+     * @param processNoise white acceleration noise, in degrees squared per second cubed
+     * @param measurementNoise variance of a single measured angle, in degrees squared
+     * @param maxVariance predicted angle variance up to which the filter counts as settled
+     */
+    public NeedleFilter(double processNoise, double measurementNoise, double maxVariance) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+        this.maxVariance = maxVariance;
+        measurementMatrix.put(0, 0, 1f, 0f);
+        kalman.set_measurementMatrix(measurementMatrix);
+        measurementNoiseCov.put(0, 0, (float) measurementNoise);
+        kalman.set_measurementNoiseCov(measurementNoiseCov);
+    }
+
+    /**
+     * Adds the angle measured in a frame taken at {@code nanos}.
+     */
+    public synchronized void correct(double measured, long nanos) {
+        if (!initialized || nanos - lastNanos > MAX_PREDICTION_NANOS) {
+            restart(measured, nanos);
+            return;
+        }
+        double dt = Math.max(0, nanos - lastNanos) / 1e9;
+        transition.put(0, 0, 1, (float) dt, 0, 1);
+        kalman.set_transitionMatrix(transition);
+        double q = processNoise;
+        noise.put(0, 0, (float) (q * dt * dt * dt / 3), (float) (q * dt * dt / 2),
+                (float) (q * dt * dt / 2), (float) (q * dt));
+        kalman.set_processNoiseCov(noise);
+        Mat predicted = kalman.predict();
+        double expected = predicted.get(0, 0)[0];
+        predicted.release();
+
+        double innovation = wrapDegrees(measured - expected);
+        if (Math.abs(innovation) > MAX_INNOVATION) {
+            rejected++;
+            restart(measured, nanos);
+            return;
+        }
+        measurement.put(0, 0, (float) (expected + innovation));
+        kalman.correct(measurement).release();
+        readPosterior();
+        lastNanos = nanos;
+        measurements++;
+    }
+
+    private void restart(double measured, long nanos) {
+        angle = normalizeDegrees(measured);
+        velocity = 0;
+        p00 = measurementNoise;
+        p01 = 0;
+        p11 = INITIAL_VELOCITY_VARIANCE;
+        restartState.put(0, 0, (float) angle, 0f);
+        kalman.set_statePost(restartState);
+        restartCovariance.put(0, 0, (float) p00, 0f, 0f, (float) p11);
+        kalman.set_errorCovPost(restartCovariance);
+        initialized = true;
+        lastNanos = nanos;
+        measurements++;
+    }
+
+    private void readPosterior() {
+        Mat state = kalman.get_statePost();
+        state.get(0, 0, values);
+        state.release();
+        angle = values[0];
+        velocity = values[1];
+        Mat covariance = kalman.get_errorCovPost();
+        covariance.get(0, 0, values);
+        covariance.release();
+        p00 = values[0];
+        p01 = values[1];
+        p11 = values[3];
+    }
+
+    /**
+     * Forgets the needle, e.g. when the gauge left the view.
+     */
+    public synchronized void reset() {
+        initialized = false;
+    }
+
+    /**
+     * Whether the angle predicted for {@code nanos} is certain enough to show without a new
+     * measurement.
+     */
+    public synchronized boolean isSettled(long nanos) {
+        return initialized && nanos - lastNanos <= MAX_PREDICTION_NANOS
+                && predictedVariance(nanos) <= maxVariance;
+    }
+
+    /**
+     * Angle predicted for {@code nanos} in [0, 360), or NaN before the first measurement.
+     */
+    public synchronized double predictAngle(long nanos) {
+        if (!initialized) {
+            return Double.NaN;
+        }
+        return normalizeDegrees(angle + velocity * elapsedSeconds(nanos));
+    }
+
+    /**
+     * Variance of the angle predicted for {@code nanos}, in degrees squared.
+     */
+    public synchronized double predictedVariance(long nanos) {
+        if (!initialized) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return propagateVariance(p00, p01, p11, processNoise, elapsedSeconds(nanos));
+    }
+
+    /**
+     * {@code base} with its needle turned to the angle predicted for {@code nanos}. Returns
+     * {@code base} unchanged before the first measurement.
+     */
+    public synchronized GaugeReading predict(GaugeReading base, long nanos) {
+        if (base == null || !initialized) {
+            return base;
+        }
+        double predicted = predictAngle(nanos);
+        double length = Math.hypot(base.needleTip.x - base.center.x,
+                base.needleTip.y - base.center.y);
+        double radians = Math.toRadians(predicted);
+        // Image y grows downwards, see GaugeReader.calculateAngle
+        Point tip = new Point((int) Math.round(base.center.x + length * Math.cos(radians)),
+                (int) Math.round(base.center.y - length * Math.sin(radians)));
+        return new GaugeReading(GaugeReader.readingFromAngle(predicted), predicted,
+                base.center, tip, base.gaugeBox, base.confidence);
+    }
+
+    private double elapsedSeconds(long nanos) {
+        return Math.max(0, nanos - lastNanos) / 1e9;
+    }
+
+    public synchronized long getMeasurements() {
+        return measurements;
+    }
+
+    /** Measurements too far from the prediction, which restarted the filter. */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public void release() {
+        transition.release();
+        noise.release();
+        measurement.release();
+        restartState.release();
+        restartCovariance.release();
+        measurementMatrix.release();
+        measurementNoiseCov.release();
+    }
+
+    /**
+     * Angle variance after {@code dt} seconds of constant-velocity motion under white
+     * acceleration noise {@code q}.
+     */
+    static double propagateVariance(double p00, double p01, double p11, double q, double dt) {
+        return p00 + 2 * dt * p01 + dt * dt * p11 + q * dt * dt * dt / 3;
+    }
+
+    /** Maps an angle difference to (-180, 180]. */
+    static double wrapDegrees(double degrees) {
+        double wrapped = normalizeDegrees(degrees);
+        return wrapped > 180 ? wrapped - 360 : wrapped;
+    }
+
+    /** Maps an angle to [0, 360). */
+    static double normalizeDegrees(double degrees) {
+        double normalized = degrees % 360;
+        return normalized < 0 ? normalized + 360 : normalized;
+    }
+}
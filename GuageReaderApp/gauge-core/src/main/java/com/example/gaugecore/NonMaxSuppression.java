@@ -0,0 +1,250 @@
+package com.example.gaugecore;
+
+import java.util.Arrays;
+
+/**
+ * Class-aware greedy non-maximum suppression over {@link Detections}.
+ *
+ * Candidates are pre-filtered by score, only the {@code topK} best are ordered (a quickselect
+ * followed by a sort of that prefix), and kept boxes are registered in a coarse grid so each
+ * candidate is only compared with kept boxes of its own class that share a cell with it.
+ * Boxes too large for the grid are kept in a short list that is always checked. All working
+ * storage is allocated up front; an instance is not thread-safe.
+ */
+public class NonMaxSuppression {
+    private static final int MAX_CELLS_PER_BOX = 16;
+
+    private final float iouThreshold;
+    private final int topK;
+    private final float cellSize;
+    private final int gridCols;
+    private final int gridRows;
+
+    private final int[] cellHeads;
+    private final int[] entryBox;
+    private final int[] entryNext;
+    private final int[] largeBoxes;
+    private int[] order = new int[0];
+    private int entryCount;
+    private int largeCount;
+
+    /**
+     * @param iouThreshold boxes of the same class overlapping a kept box by more than this are
+     *                     suppressed
+     * @param topK         at most this many of the highest-scoring candidates are considered
+     * @param width        width of the coordinate space boxes live in, e.g. the model input
+     * @param height       height of that space
+     */
+    public NonMaxSuppression(float iouThreshold, int topK, int width, int height) {
+        this.iouThreshold = iouThreshold;
+        this.topK = topK;
+        // Roughly a 10x10 grid, gauge parts are a few cells across at most
+        cellSize = Math.max(width, height) / 10f;
+        gridCols = (int) Math.ceil(width / cellSize);
+        gridRows = (int) Math.ceil(height / cellSize);
+
+        cellHeads = new int[gridCols * gridRows];
+        entryBox = new int[topK * MAX_CELLS_PER_BOX];
+        entryNext = new int[topK * MAX_CELLS_PER_BOX];
+        largeBoxes = new int[topK];
+    }
+
+    public float getIouThreshold() {
+        return iouThreshold;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Writes the surviving boxes of {@code in} whose score is at least {@code scoreThreshold}
+     * to {@code out}, highest score first.
+     */
+    public void run(Detections in, float scoreThreshold, Detections out) {
+        out.clear();
+        if (order.length < in.capacity()) {
+            order = new int[in.capacity()];
+        }
+        int[] idx = order;
+
+        // Score pre-filter
+        int n = 0;
+        for (int i = 0; i < in.count; i++) {
+            if (in.scores[i] >= scoreThreshold) {
+                idx[n++] = i;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+
+        // Partial sort, only the top k need to be in order
+        int k = Math.min(n, topK);
+        if (n > k) {
+            select(idx, in.scores, 0, n - 1, k);
+        }
+        sort(idx, in.scores, 0, k - 1);
+
+        Arrays.fill(cellHeads, -1);
+        entryCount = 0;
+        largeCount = 0;
+
+        for (int c = 0; c < k; c++) {
+            int i = idx[c];
+            if (isSuppressed(in, i)) {
+                continue;
+            }
+            register(in, i);
+            out.add(in.x1[i], in.y1[i], in.x2[i], in.y2[i], in.scores[i], in.classIds[i]);
+            if (out.count == out.capacity()) {
+                return;
+            }
+        }
+    }
+
+    private boolean isSuppressed(Detections d, int i) {
+        int classId = d.classIds[i];
+        for (int l = 0; l < largeCount; l++) {
+            int j = largeBoxes[l];
+            if (d.classIds[j] == classId && iou(d, i, j) > iouThreshold) {
+                return true;
+            }
+        }
+        int col0 = cellCol(d.x1[i]);
+        int col1 = cellCol(d.x2[i]);
+        int row0 = cellRow(d.y1[i]);
+        int row1 = cellRow(d.y2[i]);
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                for (int e = cellHeads[row * gridCols + col]; e != -1; e = entryNext[e]) {
+                    int j = entryBox[e];
+                    if (d.classIds[j] == classId && iou(d, i, j) > iouThreshold) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void register(Detections d, int i) {
+        int col0 = cellCol(d.x1[i]);
+        int col1 = cellCol(d.x2[i]);
+        int row0 = cellRow(d.y1[i]);
+        int row1 = cellRow(d.y2[i]);
+        int cells = (col1 - col0 + 1) * (row1 - row0 + 1);
+        if (cells > MAX_CELLS_PER_BOX) {
+            largeBoxes[largeCount++] = i;
+            return;
+        }
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                int cell = row * gridCols + col;
+                int e = entryCount++;
+                entryBox[e] = i;
+                entryNext[e] = cellHeads[cell];
+                cellHeads[cell] = e;
+            }
+        }
+    }
+
+    private int cellCol(float x) {
+        int col = (int) (x / cellSize);
+        return col < 0 ? 0 : (col >= gridCols ? gridCols - 1 : col);
+    }
+
+    private int cellRow(float y) {
+        int row = (int) (y / cellSize);
+        return row < 0 ? 0 : (row >= gridRows ? gridRows - 1 : row);
+    }
+
+    static float iou(Detections d, int a, int b) {
+        float left = Math.max(d.x1[a], d.x1[b]);
+        float top = Math.max(d.y1[a], d.y1[b]);
+        float right = Math.min(d.x2[a], d.x2[b]);
+        float bottom = Math.min(d.y2[a], d.y2[b]);
+        float w = right - left;
+        float h = bottom - top;
+        if (w <= 0 || h <= 0) {
+            return 0f;
+        }
+        float intersection = w * h;
+        float areaA = (d.x2[a] - d.x1[a]) * (d.y2[a] - d.y1[a]);
+        float areaB = (d.x2[b] - d.x1[b]) * (d.y2[b] - d.y1[b]);
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    /**
+     * Rearranges {@code idx[lo..hi]} so that its first {@code k} entries hold the k highest
+     * scores, in no particular order.
+     */
+    private static void select(int[] idx, float[] scores, int lo, int hi, int k) {
+        int target = lo + k - 1;
+        while (lo < hi) {
+            int p = partition(idx, scores, lo, hi);
+            if (p == target) {
+                return;
+            } else if (p < target) {
+                lo = p + 1;
+            } else {
+                hi = p - 1;
+            }
+        }
+    }
+
+    private static void sort(int[] idx, float[] scores, int lo, int hi) {
+        while (hi - lo > 16) {
+            int p = partition(idx, scores, lo, hi);
+            // Recurse into the smaller half to bound the stack
+            if (p - lo < hi - p) {
+                sort(idx, scores, lo, p - 1);
+                lo = p + 1;
+            } else {
+                sort(idx, scores, p + 1, hi);
+                hi = p - 1;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            int v = idx[i];
+            float s = scores[v];
+            int j = i - 1;
+            while (j >= lo && scores[idx[j]] < s) {
+                idx[j + 1] = idx[j];
+                j--;
+            }
+            idx[j + 1] = v;
+        }
+    }
+
+    /**
+     * Descending partition around the median of three, returns the pivot's final position.
+     */
+    private static int partition(int[] idx, float[] scores, int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (scores[idx[mid]] > scores[idx[lo]]) {
+            swap(idx, mid, lo);
+        }
+        if (scores[idx[hi]] > scores[idx[lo]]) {
+            swap(idx, hi, lo);
+        }
+        if (scores[idx[mid]] > scores[idx[hi]]) {
+            swap(idx, mid, hi);
+        }
+        float pivot = scores[idx[hi]];
+        int store = lo;
+        for (int i = lo; i < hi; i++) {
+            if (scores[idx[i]] > pivot) {
+                swap(idx, i, store++);
+            }
+        }
+        swap(idx, store, hi);
+        return store;
+    }
+
+    private static void swap(int[] idx, int a, int b) {
+        int t = idx[a];
+        idx[a] = idx[b];
+        idx[b] = t;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.gaugecore;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Image2BlobParams;
+import org.opencv.dnn.Net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link GaugeDetector} on the OpenCV DNN module, loading either an ONNX or a TFLite export of
+ * the gauge model.
+ *
+ * The NHWC input tensor is wrapped by a Mat header and repacked into the NCHW blob the network
+ * expects, reusing the blob between calls. The output shape is taken from one run on a blank
+ * input when the detector is created, which also warms the network up.
+ */
+public class OpenCvDnnGaugeDetector implements GaugeDetector {
+    private final Net net;
+    private final int[] inputShape;
+    private final Image2BlobParams blobParams;
+    private final Mat blob = new Mat();
+    private final YoloV8Decoder decoder;
+    private final float[] head;
+
+    /**
+     * @param net            the loaded network, owned by the detector from now on
+     * @param inputSize      width and height of the square model input
+     * @param normalizedBoxes whether the export emits boxes in [0, 1] rather than input pixels,
+     *                       as TFLite exports do and ONNX exports do not
+     */
+    public OpenCvDnnGaugeDetector(Net net, int inputSize, boolean normalizedBoxes) {
+        this.net = net;
+        inputShape = new int[]{1, inputSize, inputSize, 3};
+        net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+        net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+        // The tensor is already scaled to [0, 1] and letterboxed to the input size
+        blobParams = new Image2BlobParams(new Scalar(1, 1, 1), new Size(inputSize, inputSize),
+                new Scalar(0, 0, 0), false, CvType.CV_32F);
+
+        Mat blank = Mat.zeros(inputSize, inputSize, CvType.CV_32FC3);
+        Mat output = forward(blank);
+        blank.release();
+        int[] outputShape = new int[output.dims()];
+        for (int i = 0; i < outputShape.length; i++) {
+            outputShape[i] = output.size(i);
+        }
+        output.release();
+        decoder = new YoloV8Decoder(outputShape);
+        if (normalizedBoxes) {
+            decoder.setCoordinateScale(inputSize);
+        }
+        head = new float[outputShape[1] * outputShape[2]];
+    }
+
+    @Override
+    public Backend getBackend() {
+        return Backend.OPENCV_DNN;
+    }
+
+    @Override
+    public int[] getInputShape() {
+        return inputShape.clone();
+    }
+
+    @Override
+    public int getMaxDetections() {
+        return decoder.getNumAnchors();
+    }
+
+    @Override
+    public void detect(ByteBuffer input, float scoreThreshold, Detections out) {
+        input.rewind();
+        Mat image = new Mat(inputShape[1], inputShape[2], CvType.CV_32FC3, input);
+        Mat output = forward(image);
+        image.release();
+        output.get(new int[]{0, 0, 0}, head);
+        output.release();
+        decoder.decode(head, scoreThreshold, out);
+    }
+
+    private Mat forward(Mat image) {
+        Dnn.blobFromImageWithParams(image, blob, blobParams);
+        net.setInput(blob);
+        return net.forward();
+    }
+
+    @Override
+    public void close() {
+        // Net has no explicit release in the Java bindings, its finalizer frees the network
+        blob.release();
+    }
+}
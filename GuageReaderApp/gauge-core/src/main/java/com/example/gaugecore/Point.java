@@ -0,0 +1,13 @@
+package com.example.gaugecore;
+
+/**
+ * A pixel position in the image a reading was made from.
+ */
+public class Point {
+    public final int x, y;
+
+    public Point(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.gaugecore;
+
+/**
+ * An axis-aligned pixel box, e.g. the detected outline of a gauge.
+ */
+public class Rectangle {
+    public final int x, y, width, height;
+
+    public Rectangle(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+}
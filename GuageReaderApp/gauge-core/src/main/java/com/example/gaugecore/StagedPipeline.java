@@ -0,0 +1,286 @@
+package com.example.gaugecore;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Linear pipeline that runs each stage on its own threads, connected by bounded queues.
+ *
+ * Items flow through the stages in the order they were added, so while one stage works on
+ * item N the previous one can already work on item N+1. The queues hold at most
+ * {@code queueCapacity} items each, which bounds memory and makes a fast stage wait for a slow
+ * one instead of running ahead. Stages with several threads may reorder items.
+ *
+ * Stages should handle their own failures; an exception escaping a stage is counted in that
+ * stage's statistics and the item is dropped. {@link #run} reports how busy each stage was, so
+ * the bottleneck is visible. A pipeline runs once.
+ */
+public class StagedPipeline<T> {
+
+    public interface Stage<T> {
+        void process(T item) throws Exception;
+    }
+
+    private static final Object END = new Object();
+
+    private final int queueCapacity;
+    private final List<StageStats> stages = new ArrayList<>();
+    private final List<Stage<T>> bodies = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile Thread runner;
+    private volatile boolean cancelled;
+
+    public StagedPipeline(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    public StagedPipeline<T> addStage(String name, Stage<T> stage) {
+        return addStage(name, 1, stage);
+    }
+
+    public StagedPipeline<T> addStage(String name, int threadCount, Stage<T> stage) {
+        stages.add(new StageStats(name, threadCount));
+        bodies.add(stage);
+        return this;
+    }
+
+    /**
+     * Feeds {@code items} through every stage and blocks until the last one is done or the
+     * pipeline was cancelled.
+     */
+    public Stats run(Iterator<T> items) throws InterruptedException {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("No stages");
+        }
+        if (runner != null) {
+            throw new IllegalStateException("Pipeline already ran");
+        }
+        runner = Thread.currentThread();
+        long start = System.nanoTime();
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        for (int i = 0; i <= stages.size(); i++) {
+            // The queue after the last stage only ever holds the end marker
+            queues.add(new ArrayBlockingQueue<>(i < stages.size() ? queueCapacity : 1));
+        }
+        synchronized (threads) {
+            for (int i = 0; i < stages.size(); i++) {
+                StageStats stats = stages.get(i);
+                AtomicInteger running = new AtomicInteger(stats.threadCount);
+                for (int t = 0; t < stats.threadCount; t++) {
+                    Thread thread = new Thread(new Worker(bodies.get(i), stats, running,
+                            queues.get(i), queues.get(i + 1), i == stages.size() - 1),
+                            "pipeline-" + stats.name);
+                    threads.add(thread);
+                    thread.start();
+                }
+            }
+        }
+
+        try {
+            BlockingQueue<Object> first = queues.get(0);
+            while (!cancelled && items.hasNext()) {
+                first.put(items.next());
+            }
+            first.put(END);
+            queues.get(stages.size()).take();
+        } finally {
+            // Also reached when the wait above was interrupted
+            if (cancelled || Thread.interrupted()) {
+                interruptAll();
+            }
+            synchronized (threads) {
+                for (Thread thread : threads) {
+                    joinUninterruptibly(thread);
+                }
+                threads.clear();
+            }
+        }
+        return new Stats(completed.get(), System.nanoTime() - start, stages);
+    }
+
+    /**
+     * Stops the pipeline, from any thread. Items in flight are abandoned.
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread current = runner;
+        if (current != null) {
+            current.interrupt();
+        }
+        interruptAll();
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void interruptAll() {
+        synchronized (threads) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final Stage<T> stage;
+        private final StageStats stats;
+        private final AtomicInteger running;
+        private final BlockingQueue<Object> in;
+        private final BlockingQueue<Object> out;
+        private final boolean last;
+
+        Worker(Stage<T> stage, StageStats stats, AtomicInteger running,
+               BlockingQueue<Object> in, BlockingQueue<Object> out, boolean last) {
+            this.stage = stage;
+            this.stats = stats;
+            this.running = running;
+            this.in = in;
+            this.out = out;
+            this.last = last;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            try {
+                while (true) {
+                    Object next = in.take();
+                    if (next == END) {
+                        // Let the other threads of this stage see it, the last one passes it on
+                        in.put(END);
+                        if (running.decrementAndGet() == 0) {
+                            out.put(END);
+                        }
+                        return;
+                    }
+                    long begin = System.nanoTime();
+                    boolean ok = false;
+                    try {
+                        stage.process((T) next);
+                        ok = true;
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        stats.onFailure(e);
+                    }
+                    stats.onItem(System.nanoTime() - begin);
+                    // Items leaving the last stage are done, only the end marker goes further
+                    if (ok && last) {
+                        completed.incrementAndGet();
+                    } else if (ok) {
+                        out.put(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Cancelled
+            }
+        }
+    }
+
+    /**
+     * Counters of one stage, summed over its threads.
+     */
+    public static final class StageStats {
+        public final String name;
+        public final int threadCount;
+        private long items;
+        private long failures;
+        private long busyNanos;
+        private Exception lastFailure;
+
+        StageStats(String name, int threadCount) {
+            this.name = name;
+            this.threadCount = threadCount;
+        }
+
+        synchronized void onItem(long nanos) {
+            items++;
+            busyNanos += nanos;
+        }
+
+        synchronized void onFailure(Exception e) {
+            failures++;
+            lastFailure = e;
+        }
+
+        public synchronized long getItems() {
+            return items;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getBusyNanos() {
+            return busyNanos;
+        }
+
+        public synchronized Exception getLastFailure() {
+            return lastFailure;
+        }
+    }
+
+    /**
+     * Result of a run: throughput and the share of the wall time each stage's threads spent
+     * working rather than waiting on their queues.
+     */
+    public static final class Stats {
+        /** Items that made it through the last stage, not counting dropped or abandoned ones. */
+        public final int items;
+        public final long wallNanos;
+        public final List<StageStats> stages;
+
+        Stats(int items, long wallNanos, List<StageStats> stages) {
+            this.items = items;
+            this.wallNanos = wallNanos;
+            this.stages = new ArrayList<>(stages);
+        }
+
+        public float getItemsPerSecond() {
+            return wallNanos == 0 ? 0f : items * 1e9f / wallNanos;
+        }
+
+        /** Busy time of {@code stage} over its threads' share of the wall time, 0 to 1. */
+        public float getUtilisation(StageStats stage) {
+            return wallNanos == 0 ? 0f
+                    : (float) stage.getBusyNanos() / (wallNanos * stage.threadCount);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.US,
+                    "%d items in %.1f s, %.2f items/s", items, wallNanos / 1e9,
+                    getItemsPerSecond()));
+            for (StageStats stage : stages) {
+                long done = stage.getItems();
+                sb.append(String.format(Locale.US, "\n%s: %.0f%% busy, %.0f ms/item",
+                        stage.name, 100 * getUtilisation(stage),
+                        done == 0 ? 0.0 : stage.getBusyNanos() / 1e6 / done));
+                if (stage.getFailures() > 0) {
+                    sb.append(", ").append(stage.getFailures()).append(" failed");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
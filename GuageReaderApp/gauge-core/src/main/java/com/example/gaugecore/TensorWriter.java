@@ -0,0 +1,94 @@
+package com.example.gaugecore;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fills a float32 NHWC input tensor straight from an 8-bit Mat.
+ *
+ * The tensor's direct buffer is wrapped by a Mat header once, so normalising to [0, 1] is a
+ * single native {@code convertTo} that writes into the buffer the interpreter reads from.
+ * Sources whose channel count differs from the model's are converted through a scratch Mat
+ * that is reused between frames, so steady-state writes allocate nothing.
+ */
+public class TensorWriter {
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final ByteBuffer buffer;
+    private final Mat tensor;
+    private final Mat converted = new Mat();
+
+    /**
+     * @param shape the model's input shape, {@code [1, height, width, channels]}
+     */
+    public TensorWriter(int[] shape) {
+        if (shape.length != 4 || shape[0] != 1) {
+            throw new IllegalArgumentException("Expected a [1, h, w, c] input shape");
+        }
+        height = shape[1];
+        width = shape[2];
+        channels = shape[3];
+        buffer = ByteBuffer.allocateDirect(width * height * channels * 4);
+        buffer.order(ByteOrder.nativeOrder());
+        tensor = new Mat(height, width, CvType.CV_32FC(channels), buffer);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Writes {@code image}, an 8-bit Mat already sized to the tensor, scaled to [0, 1].
+     *
+     * @return the tensor buffer, rewound and ready to be passed to the interpreter
+     */
+    public ByteBuffer write(Mat image) {
+        if (image.cols() != width || image.rows() != height) {
+            throw new IllegalArgumentException("Image is " + image.cols() + "x" + image.rows()
+                    + ", tensor expects " + width + "x" + height);
+        }
+        Mat source = image;
+        if (image.channels() != channels) {
+            Imgproc.cvtColor(image, converted, conversionCode(image.channels(), channels));
+            source = converted;
+        }
+        source.convertTo(tensor, CvType.CV_32F, 1.0 / 255.0);
+        buffer.rewind();
+        return buffer;
+    }
+
+    public void release() {
+        tensor.release();
+        converted.release();
+    }
+
+    private static int conversionCode(int from, int to) {
+        if (from == 1 && to == 3) {
+            return Imgproc.COLOR_GRAY2RGB;
+        } else if (from == 4 && to == 3) {
+            return Imgproc.COLOR_RGBA2RGB;
+        } else if (from == 3 && to == 1) {
+            return Imgproc.COLOR_RGB2GRAY;
+        } else if (from == 4 && to == 1) {
+            return Imgproc.COLOR_RGBA2GRAY;
+        }
+        throw new IllegalArgumentException("Cannot convert " + from + " channels to " + to);
+    }
+}
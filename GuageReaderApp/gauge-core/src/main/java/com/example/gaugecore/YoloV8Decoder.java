@@ -0,0 +1,114 @@
+package com.example.gaugecore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes the raw YOLOv8 detection head, a {@code [1, 4 + nc, anchors]} float tensor laid out
+ * channel-major: the box centre, width and height of every anchor, followed by one score row
+ * per class.
+ *
+ * The decoder owns the direct buffer the interpreter writes into. Decoding copies it once into
+ * a reused array and walks it row by row, keeping a running best class per anchor, so no
+ * per-anchor arrays or objects are created.
+ */
+public class YoloV8Decoder {
+    private final int numClasses;
+    private final int numAnchors;
+    private final ByteBuffer outputBuffer;
+    private final FloatBuffer outputFloats;
+    private final float[] raw;
+    private final float[] bestScores;
+    private final int[] bestClasses;
+    private float coordinateScale = 1f;
+
+    /**
+     * @param shape the model's output shape, {@code [1, 4 + nc, anchors]}
+     */
+    public YoloV8Decoder(int[] shape) {
+        if (shape.length != 3 || shape[0] != 1 || shape[1] <= 4 || shape[1] > shape[2]) {
+            throw new IllegalArgumentException("Expected a [1, 4 + nc, anchors] output shape, got "
+                    + Arrays.toString(shape));
+        }
+        numClasses = shape[1] - 4;
+        numAnchors = shape[2];
+        outputBuffer = ByteBuffer.allocateDirect(shape[1] * numAnchors * 4);
+        outputBuffer.order(ByteOrder.nativeOrder());
+        outputFloats = outputBuffer.asFloatBuffer();
+        raw = new float[shape[1] * numAnchors];
+        bestScores = new float[numAnchors];
+        bestClasses = new int[numAnchors];
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getNumAnchors() {
+        return numAnchors;
+    }
+
+    /**
+     * Buffer to hand to the interpreter as output 0.
+     */
+    public ByteBuffer getOutputBuffer() {
+        outputBuffer.rewind();
+        return outputBuffer;
+    }
+
+    /**
+     * Factor applied to decoded coordinates. Exports that emit boxes normalised to [0, 1]
+     * should set this to the model input size so boxes come out in input pixels.
+     */
+    public void setCoordinateScale(float coordinateScale) {
+        this.coordinateScale = coordinateScale;
+    }
+
+    /**
+     * Decodes the contents of {@link #getOutputBuffer()}.
+     */
+    public void decode(float scoreThreshold, Detections out) {
+        outputFloats.rewind();
+        outputFloats.get(raw);
+        decode(raw, scoreThreshold, out);
+    }
+
+    /**
+     * Decodes a head already copied into a float array, e.g. by a non-TFLite backend.
+     * Anchors whose best class score is not above {@code scoreThreshold} are skipped.
+     */
+    public void decode(float[] head, float scoreThreshold, Detections out) {
+        final int n = numAnchors;
+        out.clear();
+
+        // Column-wise argmax, one contiguous class row at a time
+        System.arraycopy(head, 4 * n, bestScores, 0, n);
+        Arrays.fill(bestClasses, 0);
+        for (int c = 1; c < numClasses; c++) {
+            int row = (4 + c) * n;
+            for (int a = 0; a < n; a++) {
+                float score = head[row + a];
+                if (score > bestScores[a]) {
+                    bestScores[a] = score;
+                    bestClasses[a] = c;
+                }
+            }
+        }
+
+        final float scale = coordinateScale;
+        final int capacity = out.capacity();
+        for (int a = 0; a < n && out.count < capacity; a++) {
+            float score = bestScores[a];
+            if (score <= scoreThreshold) {
+                continue;
+            }
+            float cx = head[a] * scale;
+            float cy = head[n + a] * scale;
+            float halfW = head[2 * n + a] * scale * 0.5f;
+            float halfH = head[3 * n + a] * scale * 0.5f;
+            out.add(cx - halfW, cy - halfH, cx + halfW, cy + halfH, score, bestClasses[a]);
+        }
+    }
+}
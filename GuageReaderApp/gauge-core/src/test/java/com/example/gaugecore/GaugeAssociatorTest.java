@@ -0,0 +1,171 @@
+package com.example.gaugecore;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GaugeAssociatorTest {
+
+    @Test
+    public void associate_readsEveryGaugeOnAPanel() {
+        Detections kept = new Detections(64);
+        // 3x4 panel of 100 px gauges, needles pointing right, up, left, ...
+        int[][] tips = {{30, 0}, {0, -30}, {-30, 0}, {0, 30}};
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                int x = 20 + col * 150;
+                int y = 20 + row * 150;
+                kept.add(x, y, x + 100, y + 100, 0.9f, GaugeReader.CLASS_GAUGE);
+            }
+        }
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                int cx = 70 + col * 150;
+                int cy = 70 + row * 150;
+                int[] tip = tips[col];
+                kept.add(cx - 4, cy - 4, cx + 4, cy + 4, 0.8f, GaugeReader.CLASS_CENTER);
+                kept.add(cx + tip[0] - 4, cy + tip[1] - 4, cx + tip[0] + 4, cy + tip[1] + 4,
+                        0.7f, GaugeReader.CLASS_NEEDLE);
+            }
+        }
+
+        List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+        assertEquals(12, readings.size());
+        double[] angles = {0, 90, 180, 270};
+        for (int i = 0; i < 12; i++) {
+            GaugeReading reading = readings.get(i);
+            assertEquals(70 + (i % 4) * 150, reading.center.x);
+            assertEquals(70 + (i / 4) * 150, reading.center.y);
+            assertEquals(angles[i % 4], reading.angle, 1e-9);
+            assertEquals(0.7f, reading.confidence, 0f);
+        }
+    }
+
+    @Test
+    public void associate_keepsTheBestPartsPerGauge() {
+        Detections kept = new Detections(8);
+        kept.add(0, 0, 200, 200, 0.9f, GaugeReader.CLASS_GAUGE);
+        kept.add(96, 96, 104, 104, 0.8f, GaugeReader.CLASS_CENTER);
+        kept.add(146, 96, 154, 104, 0.75f, GaugeReader.CLASS_NEEDLE);
+        kept.add(40, 40, 48, 48, 0.5f, GaugeReader.CLASS_CENTER);
+        kept.add(96, 46, 104, 54, 0.45f, GaugeReader.CLASS_NEEDLE);
+
+        List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+        assertEquals(1, readings.size());
+        assertEquals(100, readings.get(0).center.x);
+        assertEquals(150, readings.get(0).needleTip.x);
+        assertEquals(0, readings.get(0).angle, 1e-9);
+    }
+
+    @Test
+    public void associate_pairsBestPartsWithoutAGaugeBox() {
+        // A tight crop showing the center and needle but not the whole dial
+        Detections kept = new Detections(8);
+        kept.add(96, 96, 104, 104, 0.8f, GaugeReader.CLASS_CENTER);
+        kept.add(96, 46, 104, 54, 0.6f, GaugeReader.CLASS_NEEDLE);
+
+        List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+        assertEquals(1, readings.size());
+        assertNull(readings.get(0).gaugeBox);
+        assertEquals(90, readings.get(0).angle, 1e-9);
+        assertEquals(0.6f, readings.get(0).confidence, 0f);
+    }
+
+    @Test
+    public void associate_doesNotPairPartsOfDifferentGaugesWhenNoBoxHasBoth() {
+        Detections kept = new Detections(16);
+        // Two gauges, the first missing its needle, the second's needle detected outside it
+        kept.add(0, 0, 100, 100, 0.9f, GaugeReader.CLASS_GAUGE);
+        kept.add(200, 0, 300, 100, 0.85f, GaugeReader.CLASS_GAUGE);
+        kept.add(46, 46, 54, 54, 0.9f, GaugeReader.CLASS_CENTER);
+        kept.add(246, 46, 254, 54, 0.8f, GaugeReader.CLASS_CENTER);
+        kept.add(246, 146, 254, 154, 0.7f, GaugeReader.CLASS_NEEDLE);
+
+        assertTrue(new GaugeAssociator().associate(kept).isEmpty());
+    }
+
+    @Test
+    public void associate_findsPointsInTallBoxesOverlappedByShortOnes() {
+        Detections kept = new Detections(8);
+        kept.add(0, 0, 100, 300, 0.9f, GaugeReader.CLASS_GAUGE);
+        // Starts closer above the points but ends before them
+        kept.add(0, 100, 100, 150, 0.8f, GaugeReader.CLASS_GAUGE);
+        kept.add(46, 246, 54, 254, 0.8f, GaugeReader.CLASS_CENTER);
+        kept.add(76, 246, 84, 254, 0.8f, GaugeReader.CLASS_NEEDLE);
+
+        List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+        assertEquals(1, readings.size());
+        assertEquals(300, readings.get(0).gaugeBox.height);
+    }
+
+    @Test
+    public void associate_prefersTheInnerOfNestedBoxes() {
+        Detections kept = new Detections(8);
+        kept.add(0, 0, 400, 400, 0.9f, GaugeReader.CLASS_GAUGE);
+        kept.add(200, 200, 300, 300, 0.8f, GaugeReader.CLASS_GAUGE);
+        kept.add(246, 246, 254, 254, 0.8f, GaugeReader.CLASS_CENTER);
+        kept.add(276, 246, 284, 254, 0.8f, GaugeReader.CLASS_NEEDLE);
+
+        List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+        assertEquals(1, readings.size());
+        assertEquals(200, readings.get(0).gaugeBox.x);
+    }
+
+    @Test
+    public void associate_keepsPartsInsideTheirGaugeOnRandomPanels() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            Detections kept = new Detections(256);
+            int gauges = 1 + random.nextInt(12);
+            // Gauges on a grid of 100 px cells, so they never overlap
+            boolean[] used = new boolean[64];
+            int[] cells = new int[gauges];
+            for (int g = 0; g < gauges; g++) {
+                int cell;
+                do {
+                    cell = random.nextInt(64);
+                } while (used[cell]);
+                used[cell] = true;
+                cells[g] = cell;
+                int x = (cell % 8) * 100;
+                int y = (cell / 8) * 100;
+                kept.add(x + 5, y + 5, x + 95, y + 95, 0.9f, GaugeReader.CLASS_GAUGE);
+            }
+            int expected = 0;
+            for (int g = 0; g < gauges; g++) {
+                int x = (cells[g] % 8) * 100;
+                int y = (cells[g] / 8) * 100;
+                boolean readable = random.nextInt(4) != 0;
+                kept.add(x + 46, y + 46, x + 54, y + 54, 0.8f, GaugeReader.CLASS_CENTER);
+                if (readable) {
+                    kept.add(x + 20, y + 46, x + 28, y + 54, 0.7f, GaugeReader.CLASS_NEEDLE);
+                    expected++;
+                }
+            }
+
+            List<GaugeReading> readings = new GaugeAssociator().associate(kept);
+
+            if (expected == 0) {
+                // No gauge has both parts and there are boxes, so there is no fallback
+                assertTrue(readings.isEmpty());
+                continue;
+            }
+            assertEquals(expected, readings.size());
+            for (GaugeReading reading : readings) {
+                assertEquals(180, reading.angle, 1e-9);
+                assertTrue(reading.center.x > reading.gaugeBox.x);
+                assertTrue(reading.center.x < reading.gaugeBox.x + reading.gaugeBox.width);
+                assertTrue(reading.center.y > reading.gaugeBox.y);
+                assertTrue(reading.center.y < reading.gaugeBox.y + reading.gaugeBox.height);
+            }
+        }
+    }
+}
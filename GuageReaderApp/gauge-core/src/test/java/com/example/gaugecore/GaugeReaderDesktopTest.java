@@ -0,0 +1,121 @@
+package com.example.gaugecore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The full reader on a desktop JVM: desktop OpenCV preprocessing and a stub detector in place
+ * of the model.
+ */
+public class GaugeReaderDesktopTest {
+    private static final int[] INPUT_SHAPE = {1, 640, 640, 3};
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    /**
+     * Emits the same boxes, in model input pixels, for every input.
+     */
+    private static final class StubDetector implements GaugeDetector {
+        private final Detections fixed;
+        ByteBuffer lastInput;
+
+        StubDetector(Detections fixed) {
+            this.fixed = fixed;
+        }
+
+        @Override
+        public Backend getBackend() {
+            return Backend.OPENCV_DNN;
+        }
+
+        @Override
+        public int[] getInputShape() {
+            return INPUT_SHAPE.clone();
+        }
+
+        @Override
+        public int getMaxDetections() {
+            return 16;
+        }
+
+        @Override
+        public void detect(ByteBuffer input, float scoreThreshold, Detections out) {
+            lastInput = input;
+            out.clear();
+            for (int i = 0; i < fixed.count; i++) {
+                out.add(fixed.x1[i], fixed.y1[i], fixed.x2[i], fixed.y2[i], fixed.scores[i],
+                        fixed.classIds[i]);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void inferGauges_mapsDetectionsBackToTheFrameAndPairsThem() {
+        Detections fixed = new Detections(16);
+        // Needle to the right of its center
+        fixed.add(100, 200, 200, 300, 0.9f, GaugeReader.CLASS_GAUGE);
+        fixed.add(148, 248, 152, 252, 0.8f, GaugeReader.CLASS_CENTER);
+        fixed.add(178, 248, 182, 252, 0.7f, GaugeReader.CLASS_NEEDLE);
+        // Needle above its center
+        fixed.add(400, 200, 500, 300, 0.85f, GaugeReader.CLASS_GAUGE);
+        fixed.add(446, 246, 454, 254, 0.8f, GaugeReader.CLASS_CENTER);
+        fixed.add(446, 216, 454, 224, 0.75f, GaugeReader.CLASS_NEEDLE);
+        // Below the score threshold
+        fixed.add(300, 400, 310, 410, 0.1f, GaugeReader.CLASS_NEEDLE);
+        StubDetector detector = new StubDetector(fixed);
+        GaugeReader reader = new GaugeReader(detector);
+        // A 1280x640 frame is halved and padded by 160 px above and below
+        Mat frame = new Mat(640, 1280, CvType.CV_8UC3, new Scalar(200, 200, 200));
+
+        List<GaugeReading> readings = reader.inferGauges(frame);
+
+        assertEquals(2, readings.size());
+        GaugeReading right = readings.get(0);
+        assertEquals(300, right.center.x);
+        assertEquals(180, right.center.y);
+        assertEquals(360, right.needleTip.x);
+        assertEquals(0, right.angle, 1e-9);
+        assertEquals(200, right.gaugeBox.x);
+        assertEquals(80, right.gaugeBox.y);
+        assertEquals(200, right.gaugeBox.width);
+        assertEquals(0.7f, right.confidence, 0f);
+        GaugeReading up = readings.get(1);
+        assertEquals(900, up.center.x);
+        assertEquals(180, up.center.y);
+        assertEquals(120, up.needleTip.y);
+        assertEquals(90, up.angle, 1e-9);
+        assertEquals(GaugeReader.readingFromAngle(90), up.reading, 1e-9);
+
+        // The padding above the letterboxed frame reaches the detector as the pad grey
+        assertEquals(114 / 255f, detector.lastInput.getFloat(0), 1e-6f);
+
+        frame.release();
+        reader.release();
+    }
+
+    @Test
+    public void inferGauge_isNullWithoutDetections() {
+        GaugeReader reader = new GaugeReader(new StubDetector(new Detections(1)));
+        Mat frame = new Mat(480, 640, CvType.CV_8UC1, new Scalar(0));
+
+        assertNull(reader.inferGauge(frame));
+
+        frame.release();
+        reader.release();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.gaugecore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GaugeReaderTest {
+
+    @Test
+    public void calculateAngle_measuresCounterClockwiseFromTheRight() {
+        Point center = new Point(100, 100);
+
+        assertEquals(0, GaugeReader.calculateAngle(center, new Point(150, 100)), 1e-9);
+        // Image y grows downwards, a tip above the center is at 90 degrees
+        assertEquals(90, GaugeReader.calculateAngle(center, new Point(100, 50)), 1e-9);
+        assertEquals(180, GaugeReader.calculateAngle(center, new Point(50, 100)), 1e-9);
+        assertEquals(270, GaugeReader.calculateAngle(center, new Point(100, 150)), 1e-9);
+        assertEquals(315, GaugeReader.calculateAngle(center, new Point(150, 150)), 1e-9);
+    }
+
+    @Test
+    public void getReadingFromAngle_mapsTheSweepOntoTheScale() {
+        assertEquals(0, GaugeReader.getReadingFromAngle(45, 45, 515, 0, 100), 1e-9);
+        assertEquals(50, GaugeReader.getReadingFromAngle(280, 45, 515, 0, 100), 1e-9);
+        // Rounded to one decimal
+        assertEquals(12.3, GaugeReader.getReadingFromAngle(102.9, 45, 515, 0, 100), 1e-9);
+    }
+
+    @Test
+    public void readingFor_keepsTheGeometry() {
+        Point center = new Point(100, 100);
+        Point tip = new Point(100, 50);
+        Rectangle box = new Rectangle(50, 50, 100, 100);
+
+        GaugeReading reading = GaugeReader.readingFor(center, tip, box, 0.7f);
+
+        assertEquals(90, reading.angle, 1e-9);
+        assertEquals(GaugeReader.readingFromAngle(90), reading.reading, 1e-9);
+        assertSame(center, reading.center);
+        assertSame(tip, reading.needleTip);
+        assertSame(box, reading.gaugeBox);
+        assertEquals(0.7f, reading.confidence, 0f);
+    }
+
+    @Test
+    public void translate_shiftsEveryCoordinate() {
+        GaugeReading reading = GaugeReader.readingFor(new Point(10, 20), new Point(30, 20),
+                new Rectangle(0, 0, 40, 40), 0.9f);
+
+        GaugeReading moved = reading.translate(5, -5);
+
+        assertEquals(15, moved.center.x);
+        assertEquals(15, moved.center.y);
+        assertEquals(35, moved.needleTip.x);
+        assertEquals(5, moved.gaugeBox.x);
+        assertEquals(-5, moved.gaugeBox.y);
+        assertEquals(reading.reading, moved.reading, 0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.gaugecore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import static org.junit.Assert.*;
+
+public class MatArenaTest {
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    private static Mat pass(MatArena arena, int rows, int cols) {
+        try (MatArena.Pass pass = arena.begin()) {
+            return pass.acquire(rows, cols, CvType.CV_8UC1);
+        }
+    }
+
+    @Test
+    public void begin_reusesMatsOfTheSameSize() {
+        MatArena arena = new MatArena();
+        Mat first = pass(arena, 480, 640);
+        Mat second = pass(arena, 480, 640);
+
+        assertSame(first, second);
+        assertEquals(1, arena.getMisses());
+        assertEquals(1, arena.getHits());
+        arena.release();
+    }
+
+    @Test
+    public void close_freesTheLeastRecentlyUsedSizesPastTheLimit() {
+        MatArena arena = new MatArena(2);
+        Mat small = pass(arena, 10, 10);
+        pass(arena, 20, 20);
+        // Touch the small size again, so the middle one is the oldest
+        pass(arena, 10, 10);
+        pass(arena, 30, 30);
+
+        assertEquals(1, arena.getEvictions());
+        assertEquals(2, arena.size());
+        assertSame(small, pass(arena, 10, 10));
+        pass(arena, 20, 20);
+        assertEquals(4, arena.getMisses());
+        arena.release();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.gaugecore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    // A box of the thumbnail's size is compared pixel for pixel
+    private static final int SIZE = MotionGate.DEFAULT_THUMBNAIL_SIZE;
+    private static final Rectangle BOX = new Rectangle(0, 0, SIZE, SIZE);
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    private static Mat dial(double needleDegrees) {
+        Mat frame = new Mat(SIZE, SIZE, CvType.CV_8UC1, new Scalar(200));
+        double radians = Math.toRadians(needleDegrees);
+        Point centre = new Point(SIZE / 2.0, SIZE / 2.0);
+        Point tip = new Point(centre.x + 28 * Math.cos(radians),
+                centre.y - 28 * Math.sin(radians));
+        Imgproc.line(frame, centre, tip, new Scalar(20), 2);
+        return frame;
+    }
+
+    private static Mat brighter(Mat frame, int levels) {
+        Mat out = new Mat();
+        Core.add(frame, new Scalar(levels), out);
+        return out;
+    }
+
+    /** {@code frame} with a {@code side} by {@code side} square painted black. */
+    private static Mat withSpot(Mat frame, int side) {
+        Mat out = frame.clone();
+        Mat spot = out.submat(2, 2 + side, 2, 2 + side);
+        spot.setTo(new Scalar(0));
+        spot.release();
+        return out;
+    }
+
+    @Test
+    public void hasChanged_gatesAStaticFrame() {
+        MotionGate gate = new MotionGate();
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        assertFalse(gate.hasChanged(frame, BOX));
+        assertFalse(gate.hasChanged(dial(30), BOX));
+        assertEquals(1, gate.getPassed());
+        assertEquals(2, gate.getGated());
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_passesAMovedNeedle() {
+        MotionGate gate = new MotionGate();
+
+        assertTrue(gate.hasChanged(dial(30), BOX));
+        assertTrue(gate.hasChanged(dial(60), BOX));
+        assertFalse(gate.hasChanged(dial(60), BOX));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_addsUpSlowDriftUntilItPasses() {
+        MotionGate gate = new MotionGate();
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        // Each step is below the threshold, but gated frames do not move the reference
+        assertFalse(gate.hasChanged(brighter(frame, 5), BOX));
+        assertFalse(gate.hasChanged(brighter(frame, 10), BOX));
+        assertTrue(gate.hasChanged(brighter(frame, 15), BOX));
+        // The frame that passed is the new reference
+        assertFalse(gate.hasChanged(brighter(frame, 20), BOX));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_ignoresDifferencesUpToThePixelThreshold() {
+        MotionGate gate = new MotionGate(SIZE, 12, 0.005f, 30);
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        assertFalse(gate.hasChanged(brighter(frame, 12), BOX));
+        assertTrue(gate.hasChanged(brighter(frame, 25), BOX));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_needsMoreThanTheChangedFraction() {
+        // 0.005 of 64 x 64 pixels is 20.48
+        MotionGate gate = new MotionGate(SIZE, 12, 0.005f, 30);
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        assertFalse(gate.hasChanged(withSpot(frame, 4), BOX));
+        assertTrue(gate.hasChanged(withSpot(frame, 5), BOX));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_letsAFrameThroughAfterMaxGatedFrames() {
+        MotionGate gate = new MotionGate(SIZE, 12, 0.005f, 3);
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        for (int i = 0; i < 3; i++) {
+            assertFalse(gate.hasChanged(frame, BOX));
+        }
+        assertTrue(gate.hasChanged(frame, BOX));
+        assertFalse(gate.hasChanged(frame, BOX));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_restartsWhenTheBoxMovesBeyondJitter() {
+        MotionGate gate = new MotionGate();
+        Mat frame = new Mat(2 * SIZE, 2 * SIZE, CvType.CV_8UC1, new Scalar(200));
+
+        assertTrue(gate.hasChanged(frame, BOX));
+        // Within jitter the same region is compared, so nothing changed
+        assertFalse(gate.hasChanged(frame, new Rectangle(1, 1, SIZE, SIZE)));
+        assertTrue(gate.hasChanged(frame, new Rectangle(SIZE, SIZE, SIZE, SIZE)));
+        assertFalse(gate.hasChanged(frame, new Rectangle(SIZE, SIZE, SIZE, SIZE)));
+        gate.release();
+    }
+
+    @Test
+    public void hasChanged_alwaysPassesWithoutABox() {
+        MotionGate gate = new MotionGate();
+        Mat frame = dial(30);
+
+        assertTrue(gate.hasChanged(frame, null));
+        assertTrue(gate.hasChanged(frame, null));
+        // Entirely outside the frame
+        assertTrue(gate.hasChanged(frame, new Rectangle(2 * SIZE, 0, SIZE, SIZE)));
+        assertEquals(3, gate.getPassed());
+        gate.release();
+    }
+
+    @Test
+    public void isNear_toleratesDetectorJitter() {
+        Rectangle box = new Rectangle(100, 100, 200, 200);
+
+        assertTrue(MotionGate.isNear(new Rectangle(103, 98, 205, 196), box));
+        assertFalse(MotionGate.isNear(new Rectangle(115, 100, 200, 200), box));
+        assertFalse(MotionGate.isNear(new Rectangle(100, 100, 240, 200), box));
+    }
+
+    @Test
+    public void isNear_allowsTwoPixelsOnSmallBoxes() {
+        Rectangle box = new Rectangle(10, 10, 20, 20);
+
+        assertTrue(MotionGate.isNear(new Rectangle(12, 8, 20, 22), box));
+        assertFalse(MotionGate.isNear(new Rectangle(13, 10, 20, 20), box));
+    }
+}
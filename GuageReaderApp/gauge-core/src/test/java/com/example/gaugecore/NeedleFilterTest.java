@@ -0,0 +1,146 @@
+package com.example.gaugecore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NeedleFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    // Camera frames at 30 fps
+    private static final long FRAME = SECOND / 30;
+
+    @BeforeClass
+    public static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    /**
+     * Measures a needle at {@code start} degrees turning at {@code degreesPerSecond} for one
+     * second of frames, and returns the time of the last one.
+     */
+    private static long track(NeedleFilter filter, double start, double degreesPerSecond) {
+        long nanos = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            nanos = frame * FRAME;
+            filter.correct(start + degreesPerSecond * nanos / 1e9, nanos);
+        }
+        return nanos;
+    }
+
+    @Test
+    public void correct_settlesOnAStillNeedle() {
+        NeedleFilter filter = new NeedleFilter();
+        filter.correct(90, 0);
+        assertFalse(filter.isSettled(FRAME));
+
+        long last = track(filter, 90, 0);
+
+        assertTrue(filter.isSettled(last + FRAME));
+        assertEquals(90, filter.predictAngle(last + FRAME), 0.5);
+        // Without measurements the prediction gets less certain until inference is needed
+        assertFalse(filter.isSettled(last + SECOND / 2));
+        filter.release();
+    }
+
+    @Test
+    public void predictAngle_extrapolatesAMovingNeedle() {
+        NeedleFilter filter = new NeedleFilter();
+
+        long last = track(filter, 10, 30);
+
+        double measuredLast = 10 + 30 * last / 1e9;
+        assertEquals(measuredLast + 3, filter.predictAngle(last + SECOND / 10), 1);
+        assertEquals(measuredLast + 9, filter.predictAngle(last + 3 * SECOND / 10), 1.5);
+        filter.release();
+    }
+
+    @Test
+    public void correct_followsTheNeedleAcrossZero() {
+        NeedleFilter filter = new NeedleFilter();
+
+        // Sweeps from 350 through 360 to about 19 degrees
+        long last = track(filter, 350, 30);
+
+        assertEquals(0, filter.getRejected());
+        double expected = NeedleFilter.normalizeDegrees(350 + 30 * last / 1e9 + 3);
+        assertEquals(expected, filter.predictAngle(last + SECOND / 10), 1);
+        filter.release();
+    }
+
+    @Test
+    public void correct_restartsOnAJumpOverFortyFiveDegrees() {
+        NeedleFilter filter = new NeedleFilter();
+        long last = track(filter, 90, 0);
+
+        filter.correct(180, last + FRAME);
+
+        assertEquals(1, filter.getRejected());
+        assertEquals(180, filter.predictAngle(last + FRAME), 1e-3);
+        assertFalse(filter.isSettled(last + 2 * FRAME));
+        filter.release();
+    }
+
+    @Test
+    public void correct_restartsAfterASecondWithoutMeasurements() {
+        NeedleFilter filter = new NeedleFilter();
+        long last = track(filter, 10, 30);
+        long later = last + 3 * SECOND / 2;
+        assertFalse(filter.isSettled(later));
+
+        filter.correct(70, later);
+
+        // A fresh start, not a rejection, and the old velocity is gone
+        assertEquals(0, filter.getRejected());
+        assertEquals(70, filter.predictAngle(later + SECOND / 10), 1e-3);
+        filter.release();
+    }
+
+    @Test
+    public void predict_turnsTheNeedleToThePredictedAngle() {
+        NeedleFilter filter = new NeedleFilter();
+        GaugeReading base = new GaugeReading(0, 0, new Point(100, 100), new Point(150, 100),
+                new Rectangle(40, 40, 120, 120), 0.9f);
+        assertSame(base, filter.predict(base, 0));
+
+        long last = track(filter, 90, 0);
+        GaugeReading predicted = filter.predict(base, last + FRAME);
+
+        assertEquals(90, predicted.angle, 0.5);
+        assertEquals(GaugeReader.readingFromAngle(predicted.angle), predicted.reading, 1e-9);
+        assertEquals(100, predicted.needleTip.x);
+        assertEquals(50, predicted.needleTip.y);
+        assertSame(base.center, predicted.center);
+        assertEquals(0.9f, predicted.confidence, 0f);
+        filter.release();
+    }
+
+    @Test
+    public void wrapDegrees_takesTheShortWayAroundZero() {
+        // Needle moving from 355 to 5 degrees crossed zero, it did not sweep back the dial
+        assertEquals(10, NeedleFilter.wrapDegrees(5 - 355), 1e-9);
+        assertEquals(-10, NeedleFilter.wrapDegrees(355 - 5), 1e-9);
+        assertEquals(180, NeedleFilter.wrapDegrees(-180), 1e-9);
+        assertEquals(0, NeedleFilter.wrapDegrees(720), 1e-9);
+    }
+
+    @Test
+    public void normalizeDegrees_mapsUnwrappedAnglesIntoOneTurn() {
+        assertEquals(5, NeedleFilter.normalizeDegrees(365), 1e-9);
+        assertEquals(350, NeedleFilter.normalizeDegrees(-10), 1e-9);
+        assertEquals(0, NeedleFilter.normalizeDegrees(-360), 1e-9);
+    }
+
+    @Test
+    public void propagateVariance_growsWithTimeAndVelocityUncertainty() {
+        double still = NeedleFilter.propagateVariance(1, 0, 0.01, 50, 0.1);
+        double moving = NeedleFilter.propagateVariance(1, 0, 4, 50, 0.1);
+        double later = NeedleFilter.propagateVariance(1, 0, 0.01, 50, 0.5);
+
+        assertEquals(1 + 0.0001 + 50 * 0.001 / 3, still, 1e-9);
+        assertTrue(moving > still);
+        assertTrue(later > still);
+        assertEquals(1, NeedleFilter.propagateVariance(1, 0.5, 4, 50, 0), 1e-9);
+    }
+}
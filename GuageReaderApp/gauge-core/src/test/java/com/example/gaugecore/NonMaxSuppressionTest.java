@@ -0,0 +1,112 @@
+package com.example.gaugecore;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NonMaxSuppressionTest {
+
+    @Test
+    public void run_suppressesOverlapsWithinAClass() {
+        Detections in = new Detections(8);
+        in.add(100, 100, 200, 200, 0.8f, 1);
+        in.add(105, 105, 205, 205, 0.9f, 1);
+        in.add(400, 400, 450, 450, 0.6f, 1);
+
+        Detections out = new Detections(8);
+        new NonMaxSuppression(0.5f, 100, 640, 640).run(in, 0.4f, out);
+
+        assertEquals(2, out.count);
+        assertEquals(0.9f, out.scores[0], 0f);
+        assertEquals(0.6f, out.scores[1], 0f);
+    }
+
+    @Test
+    public void run_keepsOverlappingBoxesOfDifferentClasses() {
+        Detections in = new Detections(8);
+        in.add(100, 100, 200, 200, 0.8f, GaugeReader.CLASS_GAUGE);
+        in.add(100, 100, 200, 200, 0.7f, GaugeReader.CLASS_CENTER);
+
+        Detections out = new Detections(8);
+        new NonMaxSuppression(0.5f, 100, 640, 640).run(in, 0.4f, out);
+
+        assertEquals(2, out.count);
+    }
+
+    @Test
+    public void run_largeBoxesSuppressAcrossTheGrid() {
+        Detections in = new Detections(8);
+        in.add(0, 0, 640, 640, 0.9f, 1);
+        in.add(10, 10, 630, 630, 0.8f, 1);
+
+        Detections out = new Detections(8);
+        new NonMaxSuppression(0.5f, 100, 640, 640).run(in, 0.4f, out);
+
+        assertEquals(1, out.count);
+        assertEquals(0.9f, out.scores[0], 0f);
+    }
+
+    @Test
+    public void run_appliesScoreFilterAndTopK() {
+        Detections in = new Detections(8);
+        in.add(0, 0, 10, 10, 0.3f, 0);
+        in.add(100, 0, 110, 10, 0.5f, 0);
+        in.add(200, 0, 210, 10, 0.7f, 0);
+        in.add(300, 0, 310, 10, 0.6f, 0);
+
+        Detections out = new Detections(8);
+        new NonMaxSuppression(0.5f, 2, 640, 640).run(in, 0.4f, out);
+
+        assertEquals(2, out.count);
+        assertEquals(0.7f, out.scores[0], 0f);
+        assertEquals(0.6f, out.scores[1], 0f);
+    }
+
+    @Test
+    public void run_matchesBruteForceGreedyNms() {
+        Random random = new Random(42);
+        Detections in = new Detections(2000);
+        for (int i = 0; i < in.capacity(); i++) {
+            float x = random.nextFloat() * 600;
+            float y = random.nextFloat() * 600;
+            float w = 5 + random.nextFloat() * 80;
+            float h = 5 + random.nextFloat() * 80;
+            in.add(x, y, x + w, y + h, random.nextFloat(), random.nextInt(3));
+        }
+
+        Detections out = new Detections(2000);
+        new NonMaxSuppression(0.45f, 2000, 640, 640).run(in, 0.25f, out);
+
+        assertEquals(bruteForceCount(in, 0.25f, 0.45f), out.count);
+        for (int i = 1; i < out.count; i++) {
+            assertTrue(out.scores[i - 1] >= out.scores[i]);
+        }
+    }
+
+    private static int bruteForceCount(Detections d, float scoreThreshold, float iouThreshold) {
+        Integer[] idx = new Integer[d.count];
+        for (int i = 0; i < d.count; i++) {
+            idx[i] = i;
+        }
+        java.util.Arrays.sort(idx, (a, b) -> Float.compare(d.scores[b], d.scores[a]));
+        boolean[] removed = new boolean[d.count];
+        int kept = 0;
+        for (int a = 0; a < idx.length; a++) {
+            int i = idx[a];
+            if (removed[i] || d.scores[i] < scoreThreshold) {
+                continue;
+            }
+            kept++;
+            for (int b = a + 1; b < idx.length; b++) {
+                int j = idx[b];
+                if (d.classIds[i] == d.classIds[j]
+                        && NonMaxSuppression.iou(d, i, j) > iouThreshold) {
+                    removed[j] = true;
+                }
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.gaugecore;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StagedPipelineTest {
+
+    private static List<int[]> items(int count) {
+        List<int[]> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new int[]{i, 0});
+        }
+        return items;
+    }
+
+    @Test
+    public void run_passesEveryItemThroughEveryStageInOrder() throws Exception {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>(2)
+                .addStage("double", item -> item[1] = item[0] * 2)
+                .addStage("add", item -> item[1] += 1)
+                .addStage("collect", item -> seen.add(item[1]));
+
+        StagedPipeline.Stats stats = pipeline.run(items(50).iterator());
+
+        assertEquals(50, stats.items);
+        assertEquals(50, seen.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(2 * i + 1, (int) seen.get(i));
+        }
+        for (StagedPipeline.StageStats stage : stats.stages) {
+            assertEquals(50, stage.getItems());
+        }
+    }
+
+    @Test
+    public void run_overlapsStages() throws Exception {
+        // Item 0 in the second stage and item 1 in the first can only meet if they run together
+        CountDownLatch bothBusy = new CountDownLatch(2);
+        AtomicInteger met = new AtomicInteger();
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>(2)
+                .addStage("a", item -> {
+                    if (item[0] == 1) {
+                        rendezvous(bothBusy, met);
+                    }
+                })
+                .addStage("b", item -> {
+                    if (item[0] == 0) {
+                        rendezvous(bothBusy, met);
+                    }
+                });
+
+        pipeline.run(items(3).iterator());
+
+        assertEquals(2, met.get());
+    }
+
+    private static void rendezvous(CountDownLatch latch, AtomicInteger met)
+            throws InterruptedException {
+        latch.countDown();
+        if (latch.await(10, TimeUnit.SECONDS)) {
+            met.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void run_spreadsAStageOverItsThreads() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>(4)
+                .addStage("decode", 3, item -> {
+                    peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                    concurrent.decrementAndGet();
+                })
+                .addStage("count", item -> done.incrementAndGet());
+
+        pipeline.run(items(30).iterator());
+
+        assertEquals(30, done.get());
+        assertTrue(peak.get() > 1);
+    }
+
+    @Test
+    public void run_dropsItemsWhoseStageThrows() throws Exception {
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>(2)
+                .addStage("check", item -> {
+                    if (item[0] % 3 == 0) {
+                        throw new IllegalStateException("bad item " + item[0]);
+                    }
+                })
+                .addStage("collect", item -> seen.add(item[0]));
+
+        StagedPipeline.Stats stats = pipeline.run(items(9).iterator());
+
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 8), seen);
+        assertEquals(6, stats.items);
+        assertEquals(3, stats.stages.get(0).getFailures());
+        assertEquals("bad item 6", stats.stages.get(0).getLastFailure().getMessage());
+    }
+
+    @Test
+    public void cancel_stopsARunBlockedOnAStage() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        StagedPipeline<int[]> pipeline = new StagedPipeline<int[]>(1)
+                .addStage("stuck", item -> {
+                    started.countDown();
+                    Thread.sleep(60_000);
+                });
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            try {
+                pipeline.run(items(5).iterator());
+            } catch (Throwable t) {
+                outcome.set(t);
+            }
+        });
+        runner.start();
+
+        started.await();
+        pipeline.cancel();
+        runner.join(5000);
+
+        assertFalse(runner.isAlive());
+        assertTrue(outcome.get() instanceof InterruptedException);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.gaugecore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class YoloV8DecoderTest {
+    private static final int CLASSES = 3;
+    private static final int ANCHORS = 8;
+
+    private static float[] emptyHead() {
+        return new float[(4 + CLASSES) * ANCHORS];
+    }
+
+    private static void setAnchor(float[] head, int anchor, float cx, float cy, float w, float h,
+                                  float... scores) {
+        head[anchor] = cx;
+        head[ANCHORS + anchor] = cy;
+        head[2 * ANCHORS + anchor] = w;
+        head[3 * ANCHORS + anchor] = h;
+        for (int c = 0; c < scores.length; c++) {
+            head[(4 + c) * ANCHORS + anchor] = scores[c];
+        }
+    }
+
+    @Test
+    public void decode_picksBestClassPerAnchor() {
+        YoloV8Decoder decoder = new YoloV8Decoder(new int[]{1, 4 + CLASSES, ANCHORS});
+        float[] head = emptyHead();
+        setAnchor(head, 2, 100, 50, 20, 10, 0.1f, 0.2f, 0.9f);
+        setAnchor(head, 5, 300, 200, 40, 40, 0.7f, 0.6f, 0.0f);
+
+        Detections out = new Detections(ANCHORS);
+        decoder.decode(head, 0.4f, out);
+
+        assertEquals(2, out.count);
+        assertEquals(2, out.classIds[0]);
+        assertEquals(0.9f, out.scores[0], 1e-6f);
+        assertEquals(90f, out.x1[0], 1e-4f);
+        assertEquals(45f, out.y1[0], 1e-4f);
+        assertEquals(110f, out.x2[0], 1e-4f);
+        assertEquals(55f, out.y2[0], 1e-4f);
+        assertEquals(0, out.classIds[1]);
+        assertEquals(0.7f, out.scores[1], 1e-6f);
+    }
+
+    @Test
+    public void decode_dropsAnchorsAtOrBelowThreshold() {
+        YoloV8Decoder decoder = new YoloV8Decoder(new int[]{1, 4 + CLASSES, ANCHORS});
+        float[] head = emptyHead();
+        setAnchor(head, 0, 10, 10, 2, 2, 0.4f, 0.0f, 0.0f);
+        setAnchor(head, 1, 10, 10, 2, 2, 0.0f, 0.41f, 0.0f);
+
+        Detections out = new Detections(ANCHORS);
+        decoder.decode(head, 0.4f, out);
+
+        assertEquals(1, out.count);
+        assertEquals(1, out.classIds[0]);
+    }
+
+    @Test
+    public void decode_appliesCoordinateScaleToNormalisedBoxes() {
+        YoloV8Decoder decoder = new YoloV8Decoder(new int[]{1, 4 + CLASSES, ANCHORS});
+        decoder.setCoordinateScale(640f);
+        float[] head = emptyHead();
+        setAnchor(head, 3, 0.5f, 0.25f, 0.1f, 0.1f, 0.0f, 0.8f, 0.0f);
+
+        Detections out = new Detections(ANCHORS);
+        decoder.decode(head, 0.4f, out);
+
+        assertEquals(1, out.count);
+        assertEquals(288f, out.x1[0], 1e-3f);
+        assertEquals(128f, out.y1[0], 1e-3f);
+        assertEquals(352f, out.x2[0], 1e-3f);
+        assertEquals(192f, out.y2[0], 1e-3f);
+    }
+
+    @Test
+    public void decode_readsFromOutputBuffer() {
+        YoloV8Decoder decoder = new YoloV8Decoder(new int[]{1, 4 + CLASSES, ANCHORS});
+        float[] head = emptyHead();
+        setAnchor(head, 7, 40, 40, 8, 8, 0.0f, 0.0f, 0.95f);
+        decoder.getOutputBuffer().asFloatBuffer().put(head);
+
+        Detections out = new Detections(ANCHORS);
+        decoder.decode(0.4f, out);
+
+        assertEquals(1, out.count);
+        assertEquals(2, out.classIds[0]);
+        assertEquals(36f, out.x1[0], 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTransposedHead() {
+        new YoloV8Decoder(new int[]{1, 8400, 7});
+    }
+}
@@ -0,0 +1,52 @@
+// Offline accuracy and latency evaluation of :gauge-core over the labelled frames in Model/.
+// Run with ./gradlew :gauge-eval:evaluate -PevalModel=<onnx or tflite> -PevalImages=<dir>,
+// where the directory holds the frames named in Model/gauge_readings.csv; they are not part
+// of the repository. The report lands in build/reports/eval/report.properties; copy it to
+// baseline.properties to make it the baseline later runs are checked against, a regression
+// fails the task.
+//
+// evaluate is deliberately not a dependency of check: it needs a model and the frames, which
+// a plain build does not have. Run it by hand or from a CI job that provides both.
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":gauge-core"))
+    // Desktop OpenCV with its native library bundled
+    implementation(libs.opencv.desktop)
+    testImplementation(libs.junit)
+}
+
+val modelDir = rootDir.resolve("../Model")
+
+tasks.register<JavaExec>("evaluate") {
+    group = "verification"
+    description = "Reads the labelled frames and checks accuracy and latency against the baseline."
+    mainClass.set("com.example.gaugeeval.GaugeEvaluator")
+    classpath = sourceSets.main.get().runtimeClasspath
+    val baseline = file("baseline.properties")
+    val report = layout.buildDirectory.file("reports/eval/report.properties")
+    inputs.files(modelDir.resolve("gauge_readings.csv"), modelDir.resolve("training_data.csv"))
+    outputs.file(report)
+    outputs.upToDateWhen { false }
+    doFirst {
+        val model = findProperty("evalModel")
+            ?: throw GradleException("Pass the model to evaluate with -PevalModel=<path>")
+        val images = findProperty("evalImages")
+            ?: throw GradleException("Pass the labelled frames with -PevalImages=<dir>")
+        args("--model", model,
+            "--images", images,
+            "--readings", modelDir.resolve("gauge_readings.csv"),
+            "--calibration", modelDir.resolve("training_data.csv"),
+            "--report", report.get().asFile)
+        if (baseline.exists()) {
+            args("--baseline", baseline)
+        }
+    }
+}
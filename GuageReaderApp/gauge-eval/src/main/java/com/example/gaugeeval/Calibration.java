@@ -0,0 +1,51 @@
+package com.example.gaugeeval;
+
+/**
+ * Maps a needle angle onto the dial scale of one gauge.
+ *
+ * The scale starts at {@code minAngle} and runs clockwise to {@code maxAngle}, angles in
+ * degrees counter-clockwise from the right as {@link
+ * com.example.gaugecore.GaugeReader#calculateAngle} measures them. Needles in the dead zone
+ * between the two ends read past whichever end is closer.
+ */
+public class Calibration {
+    public final double minAngle;
+    public final double maxAngle;
+    public final double minValue;
+    public final double maxValue;
+
+    public Calibration(double minAngle, double maxAngle, double minValue, double maxValue) {
+        this.minAngle = minAngle;
+        this.maxAngle = maxAngle;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * Calibration from the directions of the scale ends, as {@code training_data.csv} stores
+     * them: vectors from the dial center with y pointing up.
+     */
+    public static Calibration fromDirections(double[] min, double[] max, double minValue,
+                                             double maxValue) {
+        return new Calibration(angleOf(min), angleOf(max), minValue, maxValue);
+    }
+
+    private static double angleOf(double[] direction) {
+        return (Math.toDegrees(Math.atan2(direction[1], direction[0])) + 360) % 360;
+    }
+
+    public double valueAt(double angle) {
+        double sweep = clockwise(minAngle, maxAngle);
+        double swept = clockwise(minAngle, angle);
+        if (swept > (sweep + 360) / 2) {
+            // Closer to the start of the scale than to its end
+            swept -= 360;
+        }
+        return minValue + swept / sweep * (maxValue - minValue);
+    }
+
+    private static double clockwise(double from, double to) {
+        double degrees = (from - to) % 360;
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.gaugeeval;
+
+import com.example.gaugecore.Rectangle;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the labelled frames of {@code gauge_readings.csv}, one row at a time.
+ *
+ * Calibrations from {@code training_data.csv} are small and read up front, keyed by image
+ * name. Rows are comma separated with lists such as {@code "[425.0, 501.0, 216.0, 88.0]"}
+ * quoted. The iterator throws {@link UncheckedIOException} when reading fails.
+ */
+public class Dataset implements Iterator<LabeledFrame>, Closeable {
+    private final BufferedReader reader;
+    private final Map<String, Calibration> calibrations;
+    private final int nameColumn;
+    private final int valueColumn;
+    private final int boxColumn;
+    private LabeledFrame next;
+    private int line = 1;
+
+    public Dataset(Path readings, Map<String, Calibration> calibrations) throws IOException {
+        this.calibrations = calibrations;
+        reader = Files.newBufferedReader(readings, StandardCharsets.UTF_8);
+        List<String> header = splitRow(readHeader(reader, readings));
+        nameColumn = column(header, "image_name", readings);
+        valueColumn = column(header, "dial_value", readings);
+        boxColumn = column(header, "bbox", readings);
+    }
+
+    /**
+     * Reads {@code training_data.csv}. Its {@code min_value} and {@code max_value} columns hold
+     * pixel positions rather than scale values, so the scale range is passed in.
+     */
+    public static Map<String, Calibration> readCalibrations(Path path, double minValue,
+                                                            double maxValue) throws IOException {
+        Map<String, Calibration> calibrations = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            List<String> header = splitRow(readHeader(reader, path));
+            int name = column(header, "image_name", path);
+            int minAngle = column(header, "min_angle", path);
+            int maxAngle = column(header, "max_angle", path);
+            String row;
+            while ((row = reader.readLine()) != null) {
+                if (row.isEmpty()) {
+                    continue;
+                }
+                List<String> cells = splitRow(row);
+                calibrations.put(cells.get(name), Calibration.fromDirections(
+                        parseList(cells.get(minAngle)), parseList(cells.get(maxAngle)),
+                        minValue, maxValue));
+            }
+        }
+        return calibrations;
+    }
+
+    private static String readHeader(BufferedReader reader, Path path) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IOException(path + " is empty");
+        }
+        return header;
+    }
+
+    private static int column(List<String> header, String name, Path path) throws IOException {
+        int index = header.indexOf(name);
+        if (index < 0) {
+            throw new IOException(path + " has no " + name + " column");
+        }
+        return index;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public LabeledFrame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LabeledFrame frame = next;
+        next = null;
+        return frame;
+    }
+
+    private LabeledFrame readNext() {
+        try {
+            String row;
+            do {
+                row = reader.readLine();
+                line++;
+            } while (row != null && row.isEmpty());
+            if (row == null) {
+                return null;
+            }
+            List<String> cells = splitRow(row);
+            String name = cells.get(nameColumn);
+            double[] box = parseList(cells.get(boxColumn));
+            return new LabeledFrame(name, Double.parseDouble(cells.get(valueColumn)),
+                    new Rectangle((int) box[0], (int) box[1], (int) box[2], (int) box[3]),
+                    calibrations.get(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed row at line " + line, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Splits a CSV row on commas outside double quotes, dropping the quotes.
+     */
+    static List<String> splitRow(String row) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /**
+     * Parses a list such as {@code [0.59, -0.23, -0.01]}.
+     */
+    static double[] parseList(String cell) {
+        String body = cell.trim();
+        if (body.startsWith("[") && body.endsWith("]")) {
+            body = body.substring(1, body.length() - 1);
+        }
+        String[] parts = body.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+}
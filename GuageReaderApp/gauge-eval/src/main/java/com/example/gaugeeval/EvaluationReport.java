@@ -0,0 +1,161 @@
+package com.example.gaugeeval;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Accuracy and per-stage latency over an evaluation run, and the check of a run against a
+ * stored baseline.
+ *
+ * Reports and baselines share one properties format, so a report can be kept as the next
+ * baseline as is. Baselines may also carry tolerances: {@code tolerance.mae} and
+ * {@code tolerance.failure_rate} are absolute, {@code tolerance.latency} is a fraction of the
+ * baseline latency. Every latency percentile present in the baseline is checked. Not
+ * thread-safe.
+ */
+public class EvaluationReport {
+    public enum Stage {
+        LOAD, PREPROCESS, DETECT, POSTPROCESS, TOTAL;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static final double DEFAULT_MAE_TOLERANCE = 0.05;
+    static final double DEFAULT_FAILURE_RATE_TOLERANCE = 0.01;
+    static final double DEFAULT_LATENCY_TOLERANCE = 0.25;
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+    private final Map<Stage, LatencySamples> latencies = new EnumMap<>(Stage.class);
+    private final Map<String, Integer> failureReasons = new TreeMap<>();
+    private int frames;
+    private int readings;
+    private double absoluteErrorSum;
+    private long wallNanos;
+
+    public EvaluationReport() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencySamples());
+        }
+    }
+
+    public void addLatency(Stage stage, long nanos) {
+        latencies.get(stage).add(nanos);
+    }
+
+    public void addReading(double expected, double actual) {
+        frames++;
+        readings++;
+        absoluteErrorSum += Math.abs(actual - expected);
+    }
+
+    public void addFailure(String reason) {
+        frames++;
+        failureReasons.merge(reason, 1, Integer::sum);
+    }
+
+    public void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /** Mean absolute error over the frames that produced a reading. */
+    public double getMeanAbsoluteError() {
+        return readings == 0 ? 0 : absoluteErrorSum / readings;
+    }
+
+    /** Share of frames without a reading, 0 to 1. */
+    public double getFailureRate() {
+        return frames == 0 ? 0 : (double) (frames - readings) / frames;
+    }
+
+    public LatencySamples getLatencies(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("frames", Integer.toString(frames));
+        properties.setProperty("readings", Integer.toString(readings));
+        properties.setProperty("mae", format(getMeanAbsoluteError()));
+        properties.setProperty("failure_rate", format(getFailureRate()));
+        properties.setProperty("frames_per_second",
+                format(wallNanos == 0 ? 0 : frames * 1e9 / wallNanos));
+        for (Map.Entry<String, Integer> reason : failureReasons.entrySet()) {
+            properties.setProperty("failures." + reason.getKey(),
+                    Integer.toString(reason.getValue()));
+        }
+        for (Stage stage : Stage.values()) {
+            for (double percentile : PERCENTILES) {
+                properties.setProperty(latencyKey(stage, percentile),
+                        format(latencies.get(stage).percentileMillis(percentile)));
+            }
+        }
+        return properties;
+    }
+
+    private static String latencyKey(Stage stage, double percentile) {
+        return "latency." + stage.key() + ".p" + Math.round(percentile * 100) + "_ms";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.4f", value);
+    }
+
+    /**
+     * Everything that got worse than {@code baseline} allows, empty when the run passes.
+     */
+    public List<String> regressionsAgainst(Properties baseline) {
+        List<String> regressions = new ArrayList<>();
+        check(regressions, "mae", getMeanAbsoluteError(), baseline,
+                number(baseline, "tolerance.mae", DEFAULT_MAE_TOLERANCE), false);
+        check(regressions, "failure_rate", getFailureRate(), baseline,
+                number(baseline, "tolerance.failure_rate", DEFAULT_FAILURE_RATE_TOLERANCE),
+                false);
+        double latencyTolerance = number(baseline, "tolerance.latency",
+                DEFAULT_LATENCY_TOLERANCE);
+        for (Stage stage : Stage.values()) {
+            for (double percentile : PERCENTILES) {
+                check(regressions, latencyKey(stage, percentile),
+                        latencies.get(stage).percentileMillis(percentile), baseline,
+                        latencyTolerance, true);
+            }
+        }
+        return regressions;
+    }
+
+    private static void check(List<String> regressions, String key, double actual,
+                              Properties baseline, double tolerance, boolean relative) {
+        if (baseline.getProperty(key) == null) {
+            return;
+        }
+        double expected = number(baseline, key, 0);
+        double limit = relative ? expected * (1 + tolerance) : expected + tolerance;
+        if (actual > limit) {
+            regressions.add(String.format(Locale.US, "%s %.4f exceeds baseline %.4f (limit %.4f)",
+                    key, actual, expected, limit));
+        }
+    }
+
+    private static double number(Properties properties, String key, double fallback) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Baseline " + key + " is not a number: " + value,
+                    e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.gaugeeval;
+
+import com.example.gaugecore.Detections;
+import com.example.gaugecore.GaugeDetector;
+import com.example.gaugecore.GaugeReader;
+import com.example.gaugecore.GaugeReading;
+import com.example.gaugecore.OpenCvDnnGaugeDetector;
+import com.example.gaugecore.Rectangle;
+import com.example.gaugecore.StagedPipeline;
+import com.example.gaugeeval.EvaluationReport.Stage;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Headless evaluation of the reading pipeline over the labelled frames in {@code Model/}.
+ *
+ * Frames are streamed from the CSV through a {@link StagedPipeline}: images are decoded on a
+ * few threads, read on one thread per core, each with its own network, and scored on one. The
+ * report holds the MAE of the dial values, the share of frames without a reading and
+ * p50/p95/p99 latency of every stage. With a baseline the process exits with status 1 when
+ * anything regressed past its tolerance, which fails the Gradle task running it.
+ */
+public final class GaugeEvaluator {
+    private static final int DNN_INPUT_SIZE = 640;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final String USAGE = "Usage: GaugeEvaluator --model <onnx|tflite> "
+            + "--images <dir> --readings <gauge_readings.csv> [--calibration <training_data.csv>]"
+            + " [--scale <min>,<max>] [--threads <n>] [--report <file>] [--baseline <file>]";
+
+    private GaugeEvaluator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(run(options));
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        for (String required : Arrays.asList("model", "images", "readings")) {
+            if (!options.containsKey(required)) {
+                throw new IllegalArgumentException("Missing --" + required);
+            }
+        }
+        return options;
+    }
+
+    private static int run(Map<String, String> options) throws IOException,
+            InterruptedException {
+        nu.pattern.OpenCV.loadLocally();
+        // Frames are spread over the cores, OpenCV's own threads would only compete with them
+        Core.setNumThreads(1);
+
+        int threads = options.containsKey("threads") ? Integer.parseInt(options.get("threads"))
+                : Runtime.getRuntime().availableProcessors();
+        Map<String, Calibration> calibrations = Collections.emptyMap();
+        if (options.containsKey("calibration")) {
+            double[] scale = Dataset.parseList(options.getOrDefault("scale", "0,10"));
+            calibrations = Dataset.readCalibrations(Paths.get(options.get("calibration")),
+                    scale[0], scale[1]);
+        }
+
+        // A wrong --images would otherwise only show up as every frame failing
+        Path images = Paths.get(options.get("images"));
+        Path readings = Paths.get(options.get("readings"));
+        try (Dataset dataset = new Dataset(readings, calibrations)) {
+            if (dataset.hasNext()) {
+                Path first = images.resolve(dataset.next().imageName);
+                Mat image = Imgcodecs.imread(first.toString());
+                boolean readable = !image.empty();
+                image.release();
+                if (!readable) {
+                    System.err.println("Cannot read " + first + ", --images must hold the "
+                            + "frames listed in " + readings);
+                    return 2;
+                }
+            }
+        }
+
+        // One reader per thread, loaded up front so a bad model fails before any frame is read
+        BlockingQueue<Worker> workers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(options.get("model")));
+        }
+
+        EvaluationReport report = new EvaluationReport();
+        StagedPipeline<Item> pipeline = new StagedPipeline<Item>(QUEUE_CAPACITY)
+                .addStage("load", Math.max(1, threads / 4), item -> load(images, item))
+                .addStage("read", threads, item -> {
+                    Worker worker = workers.take();
+                    try {
+                        worker.read(item);
+                    } finally {
+                        workers.put(worker);
+                    }
+                })
+                .addStage("score", item -> score(item, report));
+        StagedPipeline.Stats stats;
+        try (Dataset dataset = new Dataset(readings, calibrations)) {
+            stats = pipeline.run(new MappingIterator(dataset));
+        } finally {
+            for (Worker worker : workers) {
+                worker.release();
+            }
+        }
+        report.setWallNanos(stats.wallNanos);
+
+        System.out.println(stats);
+        Properties properties = report.toProperties();
+        properties.list(System.out);
+        if (options.containsKey("report")) {
+            Path path = Paths.get(options.get("report"));
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(path)) {
+                properties.store(out, "Gauge reading evaluation");
+            }
+        }
+        if (!options.containsKey("baseline")) {
+            return 0;
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(options.get("baseline")))) {
+            baseline.load(in);
+        }
+        List<String> regressions = report.regressionsAgainst(baseline);
+        for (String regression : regressions) {
+            System.err.println("Regression: " + regression);
+        }
+        return regressions.isEmpty() ? 0 : 1;
+    }
+
+    private static void load(Path images, Item item) {
+        long start = System.nanoTime();
+        Mat image;
+        try {
+            image = Imgcodecs.imread(images.resolve(item.label.imageName).toString());
+        } catch (RuntimeException e) {
+            // A bad name or a decoder error costs the frame, not the run
+            item.nanos[Stage.LOAD.ordinal()] = System.nanoTime() - start;
+            item.failure = "load_error";
+            return;
+        }
+        item.nanos[Stage.LOAD.ordinal()] = System.nanoTime() - start;
+        if (image.empty()) {
+            image.release();
+            item.failure = "unreadable_image";
+        } else {
+            item.image = image;
+        }
+    }
+
+    private static void score(Item item, EvaluationReport report) {
+        long total = 0;
+        for (Stage stage : Stage.values()) {
+            long nanos = item.nanos[stage.ordinal()];
+            if (stage != Stage.TOTAL && nanos >= 0) {
+                report.addLatency(stage, nanos);
+                total += nanos;
+            }
+        }
+        report.addLatency(Stage.TOTAL, total);
+        if (item.failure != null) {
+            report.addFailure(item.failure);
+            return;
+        }
+        Calibration calibration = item.label.calibration;
+        report.addReading(item.label.dialValue, calibration != null
+                ? calibration.valueAt(item.reading.angle) : item.reading.reading);
+    }
+
+    /**
+     * The reading whose dial center is closest to the center of the labelled box.
+     */
+    static GaugeReading closestTo(Rectangle box, List<GaugeReading> readings) {
+        double x = box.x + box.width / 2.0;
+        double y = box.y + box.height / 2.0;
+        GaugeReading closest = null;
+        double closestDistance = Double.MAX_VALUE;
+        for (GaugeReading reading : readings) {
+            double distance = Math.hypot(reading.center.x - x, reading.center.y - y);
+            if (distance < closestDistance) {
+                closest = reading;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    private static final class Item {
+        final LabeledFrame label;
+        final long[] nanos = new long[Stage.values().length];
+        Mat image;
+        GaugeReading reading;
+        String failure;
+
+        Item(LabeledFrame label) {
+            this.label = label;
+            Arrays.fill(nanos, -1);
+        }
+    }
+
+    private static final class MappingIterator implements Iterator<Item> {
+        private final Dataset dataset;
+
+        MappingIterator(Dataset dataset) {
+            this.dataset = dataset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return dataset.hasNext();
+        }
+
+        @Override
+        public Item next() {
+            return new Item(dataset.next());
+        }
+    }
+
+    /**
+     * A reader on its own network, used by one thread at a time.
+     */
+    private static final class Worker {
+        private final TimedDetector detector;
+        private final GaugeReader reader;
+        private final GaugeReader.Preprocessor preprocessor = new GaugeReader.Preprocessor();
+        private final GaugeReader.Input input;
+
+        Worker(String modelPath) throws IOException {
+            boolean tflite = modelPath.endsWith(".tflite");
+            GaugeDetector dnn;
+            try {
+                Net net = tflite ? Dnn.readNetFromTFLite(modelPath)
+                        : Dnn.readNetFromONNX(modelPath);
+                // TFLite exports emit boxes normalised to the input size
+                dnn = new OpenCvDnnGaugeDetector(net, DNN_INPUT_SIZE, tflite);
+            } catch (RuntimeException e) {
+                throw new IOException("Error creating OpenCV DNN network for " + modelPath, e);
+            }
+            detector = new TimedDetector(dnn);
+            reader = new GaugeReader(detector);
+            input = reader.newInput();
+        }
+
+        void read(Item item) {
+            if (item.image == null) {
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                preprocessor.prepare(item.image, input);
+                long prepared = System.nanoTime();
+                List<GaugeReading> readings = reader.infer(input);
+                long done = System.nanoTime();
+                item.nanos[Stage.PREPROCESS.ordinal()] = prepared - start;
+                item.nanos[Stage.DETECT.ordinal()] = detector.lastNanos;
+                item.nanos[Stage.POSTPROCESS.ordinal()] = done - prepared - detector.lastNanos;
+                item.reading = closestTo(item.label.box, readings);
+                if (item.reading == null) {
+                    item.failure = "no_reading";
+                }
+            } catch (RuntimeException e) {
+                item.failure = "error";
+            } finally {
+                item.image.release();
+                item.image = null;
+            }
+        }
+
+        void release() {
+            preprocessor.release();
+            input.release();
+            reader.release();
+            detector.close();
+        }
+    }
+
+    /**
+     * Remembers how long the last model run took, so it can be told apart from the NMS and
+     * association that follow it.
+     */
+    private static final class TimedDetector implements GaugeDetector {
+        private final GaugeDetector detector;
+        long lastNanos;
+
+        TimedDetector(GaugeDetector detector) {
+            this.detector = detector;
+        }
+
+        @Override
+        public Backend getBackend() {
+            return detector.getBackend();
+        }
+
+        @Override
+        public int[] getInputShape() {
+            return detector.getInputShape();
+        }
+
+        @Override
+        public int getMaxDetections() {
+            return detector.getMaxDetections();
+        }
+
+        @Override
+        public void detect(ByteBuffer input, float scoreThreshold, Detections out) {
+            long start = System.nanoTime();
+            detector.detect(input, scoreThreshold, out);
+            lastNanos = System.nanoTime() - start;
+        }
+
+        @Override
+        public void close() {
+            detector.close();
+        }
+    }
+}
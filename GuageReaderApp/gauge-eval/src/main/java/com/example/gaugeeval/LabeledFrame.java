@@ -0,0 +1,23 @@
+package com.example.gaugeeval;
+
+import com.example.gaugecore.Rectangle;
+
+/**
+ * One row of {@code gauge_readings.csv}: an image, the value its dial shows and where the
+ * gauge is, plus the dial calibration from {@code training_data.csv} when there is one.
+ */
+public class LabeledFrame {
+    public final String imageName;
+    public final double dialValue;
+    public final Rectangle box;
+    // Null when the image has no calibration row
+    public final Calibration calibration;
+
+    public LabeledFrame(String imageName, double dialValue, Rectangle box,
+                        Calibration calibration) {
+        this.imageName = imageName;
+        this.dialValue = dialValue;
+        this.box = box;
+        this.calibration = calibration;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.gaugeeval;
+
+import java.util.Arrays;
+
+/**
+ * Every latency recorded for one stage, kept whole so percentiles are exact. Not thread-safe.
+ */
+public class LatencySamples {
+    private long[] nanos = new long[256];
+    private int count;
+
+    public void add(long sample) {
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+        }
+        nanos[count++] = sample;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds, {@code fraction} from 0 to 1, or 0 without
+     * samples.
+     */
+    public double percentileMillis(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)] / 1e6;
+    }
+}
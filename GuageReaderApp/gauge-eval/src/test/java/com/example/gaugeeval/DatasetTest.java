@@ -0,0 +1,85 @@
+package com.example.gaugeeval;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DatasetTest {
+
+    private static Path write(String... lines) throws Exception {
+        Path file = Files.createTempFile("dataset", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void splitRow_keepsQuotedCommas() {
+        assertEquals(Arrays.asList("a.png", "7.9", "[1.0, 2.0]", ""),
+                Dataset.splitRow("a.png,7.9,\"[1.0, 2.0]\","));
+    }
+
+    @Test
+    public void parseList_readsBracketedNumbers() {
+        double[] list = Dataset.parseList("[0.5, -0.25, 3]");
+        assertEquals(3, list.length);
+        assertEquals(0.5, list[0], 0);
+        assertEquals(-0.25, list[1], 0);
+        assertEquals(3, list[2], 0);
+
+        double[] bare = Dataset.parseList("0,10");
+        assertEquals(2, bare.length);
+        assertEquals(10, bare[1], 0);
+    }
+
+    @Test
+    public void dataset_streamsEveryRowWithItsCalibration() throws Exception {
+        Path readings = write("image_name,dial_value,bbox,camera_matrix",
+                "a.png,7.9,\"[425.0, 501.0, 216.0, 88.0]\",\"[1.0, 0.0]\"",
+                "",
+                "b.png,-2.2,\"[10.0, 20.0, 30.0, 40.0]\",\"[1.0, 0.0]\"");
+        Path calibration = write("image_name,min_value,max_value,min_angle,max_angle",
+                "a.png,\"[492, 533]\",\"[492, 533]\",\"[-1.0, -1.0, -0.01]\","
+                        + "\"[1.0, -1.0, -0.01]\"");
+        Map<String, Calibration> calibrations = Dataset.readCalibrations(calibration, 0, 10);
+
+        try (Dataset dataset = new Dataset(readings, calibrations)) {
+            LabeledFrame a = dataset.next();
+            assertEquals("a.png", a.imageName);
+            assertEquals(7.9, a.dialValue, 0);
+            assertEquals(425, a.box.x);
+            assertEquals(88, a.box.height);
+            assertEquals(225, a.calibration.minAngle, 1e-9);
+            assertEquals(315, a.calibration.maxAngle, 1e-9);
+
+            LabeledFrame b = dataset.next();
+            assertEquals(-2.2, b.dialValue, 0);
+            assertNull(b.calibration);
+            assertFalse(dataset.hasNext());
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void dataset_rejectsMissingColumns() throws Exception {
+        new Dataset(write("image_name,bbox"), Collections.emptyMap()).close();
+    }
+
+    @Test
+    public void calibration_sweepsClockwiseFromTheMinimum() {
+        Calibration dial = new Calibration(225, 315, 0, 10);
+
+        assertEquals(0, dial.valueAt(225), 1e-9);
+        assertEquals(5, dial.valueAt(90), 1e-9);
+        assertEquals(10, dial.valueAt(315), 1e-9);
+        // In the dead zone, just past either end of the scale
+        assertEquals(10 + 10.0 * 15 / 270, dial.valueAt(300), 1e-9);
+        assertEquals(-10.0 * 15 / 270, dial.valueAt(240), 1e-9);
+    }
+}
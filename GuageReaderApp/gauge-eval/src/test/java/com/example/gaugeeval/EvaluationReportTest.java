@@ -0,0 +1,71 @@
+package com.example.gaugeeval;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class EvaluationReportTest {
+
+    private static EvaluationReport report() {
+        EvaluationReport report = new EvaluationReport();
+        report.addReading(5, 5.5);
+        report.addReading(2, 1.5);
+        report.addReading(8, 9);
+        report.addFailure("no_reading");
+        for (int i = 1; i <= 100; i++) {
+            report.addLatency(EvaluationReport.Stage.DETECT, i * 1_000_000L);
+        }
+        return report;
+    }
+
+    @Test
+    public void percentileMillis_usesTheNearestRank() {
+        LatencySamples samples = report().getLatencies(EvaluationReport.Stage.DETECT);
+
+        assertEquals(100, samples.getCount());
+        assertEquals(50, samples.percentileMillis(0.50), 0);
+        assertEquals(95, samples.percentileMillis(0.95), 0);
+        assertEquals(99, samples.percentileMillis(0.99), 0);
+        assertEquals(0, new LatencySamples().percentileMillis(0.5), 0);
+    }
+
+    @Test
+    public void toProperties_reportsAccuracyAndLatency() {
+        Properties properties = report().toProperties();
+
+        assertEquals("4", properties.getProperty("frames"));
+        assertEquals("0.6667", properties.getProperty("mae"));
+        assertEquals("0.2500", properties.getProperty("failure_rate"));
+        assertEquals("1", properties.getProperty("failures.no_reading"));
+        assertEquals("95.0000", properties.getProperty("latency.detect.p95_ms"));
+        assertEquals("0.0000", properties.getProperty("latency.load.p50_ms"));
+    }
+
+    @Test
+    public void regressionsAgainst_passesItsOwnReport() {
+        EvaluationReport report = report();
+
+        assertTrue(report.regressionsAgainst(report.toProperties()).isEmpty());
+        assertTrue(report.regressionsAgainst(new Properties()).isEmpty());
+    }
+
+    @Test
+    public void regressionsAgainst_flagsWhatGotWorsePastItsTolerance() {
+        Properties baseline = new Properties();
+        baseline.setProperty("mae", "0.5");
+        baseline.setProperty("failure_rate", "0.24");
+        baseline.setProperty("latency.detect.p95_ms", "70");
+        baseline.setProperty("latency.detect.p99_ms", "90");
+        baseline.setProperty("tolerance.mae", "0.1");
+
+        List<String> regressions = report().regressionsAgainst(baseline);
+
+        // failure_rate and p99 stay within the default tolerances
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("mae "));
+        assertTrue(regressions.get(1).startsWith("latency.detect.p95_ms "));
+    }
+}
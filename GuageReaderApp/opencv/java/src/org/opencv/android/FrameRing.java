@@ -0,0 +1,157 @@
+package org.opencv.android;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded ring of frames between the camera thread (producer) and an analysis thread
+ * (consumer), with a selectable backpressure policy.
+ *
+ * Frames that are not handed on are given back to the {@link Recycler} straight away, so the
+ * camera's buffers are never held by a frame nobody will look at. Delivered, dropped and
+ * processed counts are kept for monitoring.
+ */
+public class FrameRing<T> {
+
+    public enum Policy {
+        /** When the ring is full the oldest queued frame is dropped for the new one. */
+        LATEST_ONLY,
+        /** When the ring is full the producer waits for space. Nothing is dropped. */
+        BLOCK,
+        /** Only every Nth delivered frame is queued, the rest are dropped at once. When the
+         *  ring is full the oldest queued frame is dropped as with {@link #LATEST_ONLY}. */
+        EVERY_NTH
+    }
+
+    public interface Recycler<T> {
+        void recycle(T frame);
+    }
+
+    // How often blocked threads re-check whether the ring was closed
+    private static final long POLL_MS = 20;
+
+    private final ArrayBlockingQueue<T> mQueue;
+    private final int mCapacity;
+    private final Policy mPolicy;
+    private final int mEveryNth;
+    private final Recycler<T> mRecycler;
+
+    private final AtomicLong mDelivered = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mProcessed = new AtomicLong();
+    private volatile boolean mClosed;
+
+    public FrameRing(int capacity, Policy policy, int everyNth, Recycler<T> recycler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be at least 1: " + capacity);
+        }
+        if (policy == Policy.EVERY_NTH && everyNth < 1) {
+            throw new IllegalArgumentException("Frame interval must be at least 1: " + everyNth);
+        }
+        mQueue = new ArrayBlockingQueue<T>(capacity);
+        mCapacity = capacity;
+        mPolicy = policy;
+        mEveryNth = everyNth;
+        mRecycler = recycler;
+    }
+
+    public int capacity() {
+        return mCapacity;
+    }
+
+    public Policy getPolicy() {
+        return mPolicy;
+    }
+
+    /**
+     * Called by the producer for every frame the camera delivers. Returns true if the frame
+     * was queued, otherwise it has already been recycled.
+     */
+    public boolean offer(T frame) {
+        long index = mDelivered.getAndIncrement();
+        if (mClosed || (mPolicy == Policy.EVERY_NTH && index % mEveryNth != 0)) {
+            drop(frame);
+            return false;
+        }
+        if (mPolicy == Policy.BLOCK) {
+            try {
+                while (!mQueue.offer(frame, POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (mClosed) {
+                        drop(frame);
+                        return false;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drop(frame);
+                return false;
+            }
+            return true;
+        }
+        // Single producer, so once an old frame is evicted the offer below finds room
+        while (!mQueue.offer(frame)) {
+            T oldest = mQueue.poll();
+            if (oldest != null) {
+                drop(oldest);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called by the consumer. Waits for the next frame and returns it, or returns null once
+     * the ring is closed. The consumer recycles the frame and calls {@link #markProcessed}.
+     */
+    public T take() {
+        try {
+            while (!mClosed) {
+                T frame = mQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (frame != null) {
+                    return frame;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    public void markProcessed() {
+        mProcessed.incrementAndGet();
+    }
+
+    /**
+     * Stops accepting frames, wakes both sides and recycles whatever is still queued.
+     */
+    public void close() {
+        mClosed = true;
+        T frame;
+        while ((frame = mQueue.poll()) != null) {
+            drop(frame);
+        }
+    }
+
+    private void drop(T frame) {
+        mDropped.incrementAndGet();
+        mRecycler.recycle(frame);
+    }
+
+    public long getDelivered() {
+        return mDelivered.get();
+    }
+
+    public long getDropped() {
+        return mDropped.get();
+    }
+
+    public long getProcessed() {
+        return mProcessed.get();
+    }
+
+    @Override
+    public String toString() {
+        return mPolicy + " ring of " + capacity() + ": delivered " + getDelivered()
+                + ", dropped " + getDropped() + ", processed " + getProcessed();
+    }
+}
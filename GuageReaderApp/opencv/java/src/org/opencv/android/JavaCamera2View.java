@@ -26,7 +26,6 @@ import android.view.ViewGroup.LayoutParams;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Size;
-import org.opencv.imgproc.Imgproc;
 
 /**
  * This class is an implementation of the Bridge View between OpenCV and Java Camera.
@@ -57,6 +56,14 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     private HandlerThread mBackgroundThread;
     protected Handler mBackgroundHandler;
 
+    private final YuvFrameAssembler mYuvAssembler = new YuvFrameAssembler();
+
+    protected int mRingSize = 2;
+    protected FrameRing.Policy mRingPolicy = FrameRing.Policy.LATEST_ONLY;
+    protected int mRingEveryNth = 1;
+    private FrameRing<Image> mFrameRing;
+    private Thread mAnalysisThread;
+
     public JavaCamera2View(Context context, int cameraId) {
         super(context, cameraId);
     }
@@ -73,6 +80,64 @@ public class JavaCamera2View extends CameraBridgeViewBase {
         mBackgroundHandler = new Handler(mBackgroundThread.getLooper());
     }
 
+    /**
+     * Frames are handed from the camera thread to a separate analysis thread, which runs the
+     * listener, through a ring of {@code size} images. The policy decides what happens while
+     * the listener is slower than the camera, see {@link FrameRing.Policy}; {@code everyNth}
+     * only applies to {@link FrameRing.Policy#EVERY_NTH}. Takes effect on the next camera start.
+     */
+    public void setFrameRing(int size, FrameRing.Policy policy, int everyNth) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Ring size must be at least 1: " + size);
+        }
+        mRingSize = size;
+        mRingPolicy = policy;
+        mRingEveryNth = everyNth;
+    }
+
+    /**
+     * Delivered, dropped and processed frame counts of the current or last session.
+     */
+    public FrameRing<Image> getFrameRing() {
+        return mFrameRing;
+    }
+
+    private void startAnalysisThread(final FrameRing<Image> ring) {
+        stopAnalysisThread();
+        mAnalysisThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Image image;
+                while ((image = ring.take()) != null) {
+                    try {
+                        RotatedCameraFrame tempFrame = new RotatedCameraFrame(new JavaCamera2Frame(image), mFrameRotation);
+                        deliverAndDrawFrame(tempFrame);
+                        tempFrame.mFrame.release();
+                        tempFrame.release();
+                    } finally {
+                        image.close();
+                        ring.markProcessed();
+                    }
+                }
+            }
+        }, "OpenCVCameraAnalysis");
+        mAnalysisThread.start();
+    }
+
+    private void stopAnalysisThread() {
+        if (mFrameRing != null) {
+            mFrameRing.close();
+        }
+        if (mAnalysisThread == null)
+            return;
+        try {
+            mAnalysisThread.join();
+            mAnalysisThread = null;
+        } catch (InterruptedException e) {
+            Log.e(LOGTAG, "stopAnalysisThread", e);
+        }
+    }
+
     private void stopBackgroundThread() {
         Log.i(LOGTAG, "stopBackgroundThread");
         if (mBackgroundThread == null)
@@ -197,27 +262,34 @@ public class JavaCamera2View extends CameraBridgeViewBase {
                 return;
             }
 
-            mImageReader = ImageReader.newInstance(w, h, mPreviewFormat, 2);
+            final FrameRing<Image> ring = new FrameRing<Image>(mRingSize, mRingPolicy, mRingEveryNth,
+                    new FrameRing.Recycler<Image>() {
+                        @Override
+                        public void recycle(Image image) {
+                            image.close();
+                        }
+                    });
+            // The ring, the image being analysed and the one being acquired
+            mImageReader = ImageReader.newInstance(w, h, mPreviewFormat, mRingSize + 2);
             mImageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
                 @Override
                 public void onImageAvailable(ImageReader reader) {
 
-                    Image image = reader.acquireLatestImage();
+                    // Every image is taken so the ring can count it, the policy decides which
+                    // ones reach the listener
+                    Image image = reader.acquireNextImage();
                     if (image == null)
                         return;
 
                     // sanity checks - 3 planes
-                    Image.Plane[] planes = image.getPlanes();
-                    assert (planes.length == 3);
+                    assert (image.getPlanes().length == 3);
                     assert (image.getFormat() == mPreviewFormat);
 
-                    RotatedCameraFrame tempFrame = new RotatedCameraFrame(new JavaCamera2Frame(image), mFrameRotation);
-                    deliverAndDrawFrame(tempFrame);
-                    tempFrame.mFrame.release();
-                    tempFrame.release();
-                    image.close();
+                    ring.offer(image);
                 }
             }, mBackgroundHandler);
+            startAnalysisThread(ring);
+            mFrameRing = ring;
             Surface surface = mImageReader.getSurface();
 
             mPreviewRequestBuilder = mCameraDevice.createCaptureRequest(mRequestTemplate);
@@ -233,6 +305,7 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     @Override
     protected void disconnectCamera() {
         Log.i(LOGTAG, "close camera");
+        stopAnalysisThread();
         try {
             CameraDevice c = mCameraDevice;
             mCameraDevice = null;
@@ -245,14 +318,29 @@ public class JavaCamera2View extends CameraBridgeViewBase {
             }
         } finally {
             stopBackgroundThread();
+            if (null != mFrameRing) {
+                // Recycle anything offered while the camera was shutting down
+                mFrameRing.close();
+                Log.i(LOGTAG, "Frames: " + mFrameRing);
+            }
             if (null != mImageReader) {
                 mImageReader.close();
                 mImageReader = null;
             }
+            // The camera thread is gone, nothing is converting any more
+            Log.i(LOGTAG, "YUV conversion: " + mYuvAssembler);
+            mYuvAssembler.release();
         }
         Log.i(LOGTAG, "camera closed!");
     }
 
+    /**
+     * Conversion statistics of the RGBA frames delivered so far.
+     */
+    public YuvFrameAssembler getFrameAssembler() {
+        return mYuvAssembler;
+    }
+
     public static class JavaCameraSizeAccessor implements ListItemAccessor {
         @Override
         public int getWidth(Object obj) {
@@ -349,117 +437,48 @@ public class JavaCamera2View extends CameraBridgeViewBase {
     }
 
     private class JavaCamera2Frame implements CvCameraViewFrame {
+        /**
+         * Wraps the Y plane in place, honouring its row stride. No pixels are copied, so the
+         * Mat is only valid while the image is open.
+         */
         @Override
         public Mat gray() {
-            Image.Plane[] planes = mImage.getPlanes();
-            int w = mImage.getWidth();
-            int h = mImage.getHeight();
-            assert(planes[0].getPixelStride() == 1);
-            ByteBuffer y_plane = planes[0].getBuffer();
-            int y_plane_step = planes[0].getRowStride();
-            mGray = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
+            if (mGray == null) {
+                Image.Plane[] planes = mImage.getPlanes();
+                int w = mImage.getWidth();
+                int h = mImage.getHeight();
+                assert(planes[0].getPixelStride() == 1);
+                ByteBuffer y_plane = planes[0].getBuffer();
+                int y_plane_step = planes[0].getRowStride();
+                mGray = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
+            }
             return mGray;
         }
 
+        /**
+         * Converts the frame to RGBA on first use. Consumers that only need luma should call
+         * {@link #gray()} and never pay for the conversion.
+         */
         @Override
         public Mat rgba() {
-            Image.Plane[] planes = mImage.getPlanes();
-            int w = mImage.getWidth();
-            int h = mImage.getHeight();
-            int chromaPixelStride = planes[1].getPixelStride();
-
-
-            if (chromaPixelStride == 2) { // Chroma channels are interleaved
-                assert(planes[0].getPixelStride() == 1);
-                assert(planes[2].getPixelStride() == 2);
-                ByteBuffer y_plane = planes[0].getBuffer();
-                int y_plane_step = planes[0].getRowStride();
-                ByteBuffer uv_plane1 = planes[1].getBuffer();
-                int uv_plane1_step = planes[1].getRowStride();
-                ByteBuffer uv_plane2 = planes[2].getBuffer();
-                int uv_plane2_step = planes[2].getRowStride();
-                Mat y_mat = new Mat(h, w, CvType.CV_8UC1, y_plane, y_plane_step);
-                Mat uv_mat1 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane1, uv_plane1_step);
-                Mat uv_mat2 = new Mat(h / 2, w / 2, CvType.CV_8UC2, uv_plane2, uv_plane2_step);
-                long addr_diff = uv_mat2.dataAddr() - uv_mat1.dataAddr();
-                if (addr_diff > 0) {
-                    assert(addr_diff == 1);
-                    Imgproc.cvtColorTwoPlane(y_mat, uv_mat1, mRgba, Imgproc.COLOR_YUV2RGBA_NV12);
-                } else {
-                    assert(addr_diff == -1);
-                    Imgproc.cvtColorTwoPlane(y_mat, uv_mat2, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
-                }
-                return mRgba;
-            } else { // Chroma channels are not interleaved
-                byte[] yuv_bytes = new byte[w*(h+h/2)];
-                ByteBuffer y_plane = planes[0].getBuffer();
-                ByteBuffer u_plane = planes[1].getBuffer();
-                ByteBuffer v_plane = planes[2].getBuffer();
-
-                int yuv_bytes_offset = 0;
-
-                int y_plane_step = planes[0].getRowStride();
-                if (y_plane_step == w) {
-                    y_plane.get(yuv_bytes, 0, w*h);
-                    yuv_bytes_offset = w*h;
-                } else {
-                    int padding = y_plane_step - w;
-                    for (int i = 0; i < h; i++){
-                        y_plane.get(yuv_bytes, yuv_bytes_offset, w);
-                        yuv_bytes_offset += w;
-                        if (i < h - 1) {
-                            y_plane.position(y_plane.position() + padding);
-                        }
-                    }
-                    assert(yuv_bytes_offset == w * h);
-                }
-
-                int chromaRowStride = planes[1].getRowStride();
-                int chromaRowPadding = chromaRowStride - w/2;
-
-                if (chromaRowPadding == 0){
-                    // When the row stride of the chroma channels equals their width, we can copy
-                    // the entire channels in one go
-                    u_plane.get(yuv_bytes, yuv_bytes_offset, w*h/4);
-                    yuv_bytes_offset += w*h/4;
-                    v_plane.get(yuv_bytes, yuv_bytes_offset, w*h/4);
-                } else {
-                    // When not equal, we need to copy the channels row by row
-                    for (int i = 0; i < h/2; i++){
-                        u_plane.get(yuv_bytes, yuv_bytes_offset, w/2);
-                        yuv_bytes_offset += w/2;
-                        if (i < h/2-1){
-                            u_plane.position(u_plane.position() + chromaRowPadding);
-                        }
-                    }
-                    for (int i = 0; i < h/2; i++){
-                        v_plane.get(yuv_bytes, yuv_bytes_offset, w/2);
-                        yuv_bytes_offset += w/2;
-                        if (i < h/2-1){
-                            v_plane.position(v_plane.position() + chromaRowPadding);
-                        }
-                    }
-                }
-
-                Mat yuv_mat = new Mat(h+h/2, w, CvType.CV_8UC1);
-                yuv_mat.put(0, 0, yuv_bytes);
-                Imgproc.cvtColor(yuv_mat, mRgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
-                return mRgba;
+            if (mRgba == null) {
+                mRgba = mYuvAssembler.toRgba(mImage);
             }
+            return mRgba;
         }
 
 
         public JavaCamera2Frame(Image image) {
             super();
             mImage = image;
-            mRgba = new Mat();
-            mGray = new Mat();
         }
 
         @Override
         public void release() {
-            mRgba.release();
-            mGray.release();
+            // mRgba belongs to the assembler and is reused for the next frame
+            if (mGray != null) {
+                mGray.release();
+            }
         }
 
         private Image mImage;
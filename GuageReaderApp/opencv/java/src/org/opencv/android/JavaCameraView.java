@@ -35,11 +35,15 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
     private static final int MAGIC_TEXTURE_ID = 10;
     private static final String TAG = "JavaCameraView";
 
+    // How long the worker parks before re-checking for a stop request
+    private static final long WORKER_PARK_NANOS = 50_000_000L;
+
     private byte mBuffer[];
     private Mat[] mFrameChain;
-    private int mChainIdx = 0;
+    private int mExchangerDepth = 1;
+    private SpscFrameExchanger mExchanger;
     private Thread mThread;
-    private boolean mStopThread;
+    private volatile boolean mStopThread;
 
     protected Camera mCamera;
     protected RotatedCameraFrame[] mCameraFrame;
@@ -69,6 +73,25 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         super(context, attrs);
     }
 
+    /**
+     * Number of frames that may wait for the processing thread. With the default of 1 the
+     * processing thread always gets the newest frame; with more, frames are processed in order
+     * and new ones are dropped while the queue is full. Takes effect on the next camera start.
+     */
+    public void setFrameExchangerDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Exchanger depth must be at least 1: " + depth);
+        }
+        mExchangerDepth = depth;
+    }
+
+    /**
+     * Hand-off counters of the current or last session.
+     */
+    public SpscFrameExchanger getFrameExchanger() {
+        return mExchanger;
+    }
+
     protected boolean initializeCamera(int width, int height) {
         Log.d(TAG, "Initialize java camera");
         boolean result = true;
@@ -204,15 +227,19 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
                     mCamera.addCallbackBuffer(mBuffer);
                     mCamera.setPreviewCallbackWithBuffer(this);
 
-                    mFrameChain = new Mat[2];
-                    mFrameChain[0] = new Mat(rawFrameHeight + (rawFrameHeight/2), rawFrameWidth, CvType.CV_8UC1);
-                    mFrameChain[1] = new Mat(rawFrameHeight + (rawFrameHeight/2), rawFrameWidth, CvType.CV_8UC1);
+                    mExchanger = new SpscFrameExchanger(mExchangerDepth);
+                    int slots = mExchanger.slotCount();
+                    mFrameChain = new Mat[slots];
+                    for (int i = 0; i < slots; i++) {
+                        mFrameChain[i] = new Mat(rawFrameHeight + (rawFrameHeight/2), rawFrameWidth, CvType.CV_8UC1);
+                    }
 
                     AllocateCache();
 
-                    mCameraFrame = new RotatedCameraFrame[2];
-                    mCameraFrame[0] = new RotatedCameraFrame(new JavaCameraFrame(mFrameChain[0], rawFrameWidth, rawFrameHeight), frameRotation);
-                    mCameraFrame[1] = new RotatedCameraFrame(new JavaCameraFrame(mFrameChain[1], rawFrameWidth, rawFrameHeight), frameRotation);
+                    mCameraFrame = new RotatedCameraFrame[slots];
+                    for (int i = 0; i < slots; i++) {
+                        mCameraFrame[i] = new RotatedCameraFrame(new JavaCameraFrame(mFrameChain[i], rawFrameWidth, rawFrameHeight), frameRotation);
+                    }
 
                     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
                         mSurfaceTexture = new SurfaceTexture(MAGIC_TEXTURE_ID);
@@ -245,20 +272,19 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
             }
             mCamera = null;
             if (mFrameChain != null) {
-                mFrameChain[0].release();
-                mFrameChain[1].release();
+                for (Mat frame : mFrameChain) {
+                    frame.release();
+                }
             }
             if (mCameraFrame != null) {
-                mCameraFrame[0].mFrame.release();
-                mCameraFrame[0].release();
-                mCameraFrame[1].mFrame.release();
-                mCameraFrame[1].release();
+                for (RotatedCameraFrame frame : mCameraFrame) {
+                    frame.mFrame.release();
+                    frame.release();
+                }
             }
         }
     }
 
-    private boolean mCameraFrameReady = false;
-
     @Override
     protected boolean connectCamera(int width, int height) {
 
@@ -270,8 +296,6 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         if (!initializeCamera(width, height))
             return false;
 
-        mCameraFrameReady = false;
-
         /* now we can start update thread */
         Log.d(TAG, "Starting processing thread");
         mStopThread = false;
@@ -289,10 +313,9 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
         Log.d(TAG, "Disconnecting from camera");
         try {
             mStopThread = true;
-            Log.d(TAG, "Notify thread");
-            synchronized (this) {
-                this.notify();
-            }
+            Log.d(TAG, "Wake thread");
+            if (mExchanger != null)
+                mExchanger.wakeConsumer();
             Log.d(TAG, "Waiting for thread");
             if (mThread != null)
                 mThread.join();
@@ -302,20 +325,22 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
             mThread =  null;
         }
 
+        if (mExchanger != null)
+            Log.d(TAG, "Frame hand-off: " + mExchanger);
+
         /* Now release camera */
         releaseCamera();
-
-        mCameraFrameReady = false;
     }
 
     @Override
     public void onPreviewFrame(byte[] frame, Camera arg1) {
         if (BuildConfig.DEBUG)
             Log.d(TAG, "Preview Frame received. Frame size: " + frame.length);
-        synchronized (this) {
-            mFrameChain[mChainIdx].put(0, 0, frame);
-            mCameraFrameReady = true;
-            this.notify();
+        // Never waits: if the processing thread is too far behind the frame is dropped
+        int slot = mExchanger.claim();
+        if (slot >= 0) {
+            mFrameChain[slot].put(0, 0, frame);
+            mExchanger.publish(slot);
         }
         if (mCamera != null)
             mCamera.addCallbackBuffer(mBuffer);
@@ -362,27 +387,16 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
         @Override
         public void run() {
+            SpscFrameExchanger exchanger = mExchanger;
             do {
-                boolean hasFrame = false;
-                synchronized (JavaCameraView.this) {
-                    try {
-                        while (!mCameraFrameReady && !mStopThread) {
-                            JavaCameraView.this.wait();
-                        }
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    if (mCameraFrameReady)
-                    {
-                        mChainIdx = 1 - mChainIdx;
-                        mCameraFrameReady = false;
-                        hasFrame = true;
-                    }
-                }
-
-                if (!mStopThread && hasFrame) {
-                    if (!mFrameChain[1 - mChainIdx].empty())
-                        deliverAndDrawFrame(mCameraFrame[1 - mChainIdx]);
+                int slot = exchanger.take(WORKER_PARK_NANOS);
+                if (slot < 0)
+                    continue;
+                try {
+                    if (!mStopThread && !mFrameChain[slot].empty())
+                        deliverAndDrawFrame(mCameraFrame[slot]);
+                } finally {
+                    exchanger.release(slot);
                 }
             } while (!mStopThread);
             Log.d(TAG, "Finish processing thread");
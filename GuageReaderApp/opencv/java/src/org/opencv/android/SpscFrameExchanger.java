@@ -0,0 +1,244 @@
+package org.opencv.android;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free hand-off of frame buffers from one producer thread to one consumer thread.
+ *
+ * The exchanger manages {@link #slotCount()} slot indices; the caller owns the buffers they
+ * refer to. The producer claims a slot, fills it and publishes it; the consumer takes a
+ * published slot, processes it and releases it. Neither side ever waits for the other except
+ * the consumer parking while nothing is published, and the producer unparks it only if it
+ * announced it was about to park.
+ *
+ * With a depth of 1 the exchanger is a triple-buffered mailbox: publishing replaces a frame
+ * the consumer has not taken yet, so the consumer always gets the newest frame. With a larger
+ * depth up to {@code depth} frames queue in order and new frames are dropped while the queue
+ * is full.
+ */
+public class SpscFrameExchanger {
+
+    private static final int FRESH = 1 << 30;
+
+    private final int mDepth;
+
+    // Mailbox mode: the producer's back slot, the shared slot and the consumer's front slot
+    private final AtomicInteger mMailbox;
+    private int mBack;
+    private int mFront;
+
+    // Queue mode
+    private final IndexRing mPublished;
+    private final IndexRing mFree;
+
+    private volatile Thread mConsumer;
+    private volatile boolean mConsumerParked;
+
+    private final AtomicLong mPublishedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mSkippedCount = new AtomicLong();
+    private final AtomicLong mTakenCount = new AtomicLong();
+
+    public SpscFrameExchanger(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Exchanger depth must be at least 1: " + depth);
+        }
+        mDepth = depth;
+        if (depth == 1) {
+            mBack = 0;
+            mMailbox = new AtomicInteger(1);
+            mFront = 2;
+            mPublished = null;
+            mFree = null;
+        } else {
+            // depth queued, one being filled, one being processed
+            int slots = depth + 2;
+            mMailbox = null;
+            mPublished = new IndexRing(slots);
+            mFree = new IndexRing(slots);
+            for (int i = 0; i < slots; i++) {
+                mFree.offer(i);
+            }
+        }
+    }
+
+    /** Number of buffers the caller has to provide, indexed from 0. */
+    public int slotCount() {
+        return mDepth == 1 ? 3 : mFree.capacity();
+    }
+
+    public int getDepth() {
+        return mDepth;
+    }
+
+    /**
+     * Producer side. Returns the slot to fill next, or -1 if the queue is full, in which case
+     * the frame is counted as dropped. Never fails with a depth of 1.
+     */
+    public int claim() {
+        if (mDepth == 1) {
+            return mBack;
+        }
+        // The consumer only ever shrinks the queue, so this check cannot go stale against us
+        int slot = mPublished.size() < mDepth ? mFree.poll() : -1;
+        if (slot < 0) {
+            mDroppedCount.incrementAndGet();
+        }
+        return slot;
+    }
+
+    /**
+     * Producer side. Hands a filled slot obtained from {@link #claim} to the consumer.
+     */
+    public void publish(int slot) {
+        if (mDepth == 1) {
+            int previous = mMailbox.getAndSet(slot | FRESH);
+            if ((previous & FRESH) != 0) {
+                // The consumer never saw that frame
+                mSkippedCount.incrementAndGet();
+            }
+            mBack = previous & ~FRESH;
+        } else {
+            // Cannot fail, the ring has room for every slot
+            mPublished.offer(slot);
+        }
+        mPublishedCount.incrementAndGet();
+        // Both sides write their volatile state before reading the other's, so either the
+        // consumer sees the frame before parking or we see that it parked
+        if (mConsumerParked) {
+            LockSupport.unpark(mConsumer);
+        }
+    }
+
+    /**
+     * Consumer side. Returns the next published slot, parking for at most
+     * {@code timeoutNanos} if there is none yet, or -1 on timeout. The slot must be given back
+     * with {@link #release} before the next call.
+     */
+    public int take(long timeoutNanos) {
+        int slot = poll();
+        if (slot >= 0) {
+            return slot;
+        }
+        mConsumer = Thread.currentThread();
+        mConsumerParked = true;
+        try {
+            slot = poll();
+            if (slot >= 0) {
+                return slot;
+            }
+            LockSupport.parkNanos(this, timeoutNanos);
+            return poll();
+        } finally {
+            mConsumerParked = false;
+        }
+    }
+
+    private int poll() {
+        int slot;
+        if (mDepth == 1) {
+            // Only the consumer clears FRESH, so once seen it is still set below
+            if ((mMailbox.get() & FRESH) == 0) {
+                return -1;
+            }
+            slot = mMailbox.getAndSet(mFront) & ~FRESH;
+            mFront = -1;
+        } else {
+            slot = mPublished.poll();
+            if (slot < 0) {
+                return -1;
+            }
+        }
+        mTakenCount.incrementAndGet();
+        return slot;
+    }
+
+    /** Consumer side. Returns a slot obtained from {@link #take} to the producer. */
+    public void release(int slot) {
+        if (mDepth == 1) {
+            mFront = slot;
+        } else {
+            mFree.offer(slot);
+        }
+    }
+
+    /** Wakes the consumer if it is parked, e.g. so it notices a stop request. */
+    public void wakeConsumer() {
+        Thread consumer = mConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    public long getPublished() {
+        return mPublishedCount.get();
+    }
+
+    /** Frames the producer could not queue because the queue was full. */
+    public long getDropped() {
+        return mDroppedCount.get();
+    }
+
+    /** Frames replaced in the mailbox by a newer one before the consumer took them. */
+    public long getSkipped() {
+        return mSkippedCount.get();
+    }
+
+    public long getTaken() {
+        return mTakenCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "published " + getPublished() + ", taken " + getTaken() + ", skipped "
+                + getSkipped() + ", dropped " + getDropped();
+    }
+
+    /**
+     * Bounded single-producer, single-consumer queue of slot indices. The tail is only written
+     * by the producer and the head only by the consumer; each publishes its array accesses to
+     * the other through the volatile write of its own counter.
+     */
+    private static final class IndexRing {
+        private final AtomicIntegerArray mEntries;
+        private final int mCapacity;
+        private final AtomicLong mHead = new AtomicLong();
+        private final AtomicLong mTail = new AtomicLong();
+
+        IndexRing(int capacity) {
+            mCapacity = capacity;
+            mEntries = new AtomicIntegerArray(capacity);
+        }
+
+        int capacity() {
+            return mCapacity;
+        }
+
+        int size() {
+            return (int) (mTail.get() - mHead.get());
+        }
+
+        boolean offer(int index) {
+            long tail = mTail.get();
+            if (tail - mHead.get() == mCapacity) {
+                return false;
+            }
+            mEntries.lazySet((int) (tail % mCapacity), index);
+            mTail.set(tail + 1);
+            return true;
+        }
+
+        int poll() {
+            long head = mHead.get();
+            if (head == mTail.get()) {
+                return -1;
+            }
+            int index = mEntries.get((int) (head % mCapacity));
+            mHead.set(head + 1);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.opencv.android;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import android.annotation.TargetApi;
+import android.media.Image;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Converts YUV_420_888 camera images to RGBA, reusing its buffers across frames.
+ *
+ * Interleaved chroma (NV12/NV21 layouts) is converted straight from the image planes. Planar
+ * or otherwise strided chroma is first assembled into a pooled I420 buffer, one strided native
+ * copy per plane, so no Java arrays are involved. Buffers are only reallocated when the frame
+ * size changes; the allocation count and conversion times are kept so regressions show up.
+ *
+ * Not thread-safe, meant to be owned by the camera thread.
+ */
+@TargetApi(21)
+public class YuvFrameAssembler {
+
+    private final Mat mRgba = new Mat();
+
+    private int mWidth = -1;
+    private int mHeight = -1;
+    private ByteBuffer mI420Buffer;
+    private Mat mI420;
+    private Mat mYDst;
+    private Mat mUDst;
+    private Mat mVDst;
+
+    private long mFrames;
+    private long mAllocations;
+    private long mLastNanos;
+    private long mTotalNanos;
+
+    /**
+     * Converts {@code image} to RGBA. The returned Mat is owned by the assembler and is
+     * overwritten by the next call.
+     */
+    public Mat toRgba(Image image) {
+        long start = System.nanoTime();
+        Image.Plane[] planes = image.getPlanes();
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if (mRgba.rows() != h || mRgba.cols() != w) {
+            mRgba.create(h, w, CvType.CV_8UC4);
+            mAllocations++;
+        }
+
+        Mat y = new Mat(h, w, CvType.CV_8UC1, planes[0].getBuffer(), planes[0].getRowStride());
+        try {
+            if (!convertInterleaved(planes, y, w, h)) {
+                convertPlanar(planes, y, w, h);
+            }
+        } finally {
+            y.release();
+        }
+
+        mLastNanos = System.nanoTime() - start;
+        mTotalNanos += mLastNanos;
+        mFrames++;
+        return mRgba;
+    }
+
+    private boolean convertInterleaved(Image.Plane[] planes, Mat y, int w, int h) {
+        if (planes[1].getPixelStride() != 2 || planes[2].getPixelStride() != 2) {
+            return false;
+        }
+        Mat uv1 = new Mat(h / 2, w / 2, CvType.CV_8UC2, planes[1].getBuffer(), planes[1].getRowStride());
+        Mat uv2 = new Mat(h / 2, w / 2, CvType.CV_8UC2, planes[2].getBuffer(), planes[2].getRowStride());
+        try {
+            long addrDiff = uv2.dataAddr() - uv1.dataAddr();
+            if (addrDiff == 1) {
+                Imgproc.cvtColorTwoPlane(y, uv1, mRgba, Imgproc.COLOR_YUV2RGBA_NV12);
+            } else if (addrDiff == -1) {
+                Imgproc.cvtColorTwoPlane(y, uv2, mRgba, Imgproc.COLOR_YUV2RGBA_NV21);
+            } else {
+                // Strided but separate chroma planes, assemble them instead
+                return false;
+            }
+            return true;
+        } finally {
+            uv1.release();
+            uv2.release();
+        }
+    }
+
+    private void convertPlanar(Image.Plane[] planes, Mat y, int w, int h) {
+        ensureI420(w, h);
+        y.copyTo(mYDst);
+        copyChroma(planes[1], mUDst, w / 2, h / 2);
+        copyChroma(planes[2], mVDst, w / 2, h / 2);
+        Imgproc.cvtColor(mI420, mRgba, Imgproc.COLOR_YUV2RGBA_I420, 4);
+    }
+
+    private static void copyChroma(Image.Plane plane, Mat dst, int w, int h) {
+        int pixelStride = plane.getPixelStride();
+        Mat src = new Mat(h, w, CvType.makeType(CvType.CV_8U, pixelStride),
+                plane.getBuffer(), plane.getRowStride());
+        try {
+            if (pixelStride == 1) {
+                src.copyTo(dst);
+            } else {
+                Core.extractChannel(src, dst, 0);
+            }
+        } finally {
+            src.release();
+        }
+    }
+
+    private void ensureI420(int w, int h) {
+        if (w == mWidth && h == mHeight) {
+            return;
+        }
+        releaseI420();
+        mWidth = w;
+        mHeight = h;
+        int ySize = w * h;
+        int cSize = (w / 2) * (h / 2);
+        mI420Buffer = ByteBuffer.allocateDirect(ySize + 2 * cSize);
+        mI420 = new Mat(h + h / 2, w, CvType.CV_8UC1, mI420Buffer);
+        mYDst = new Mat(h, w, CvType.CV_8UC1, slice(0, ySize));
+        mUDst = new Mat(h / 2, w / 2, CvType.CV_8UC1, slice(ySize, cSize));
+        mVDst = new Mat(h / 2, w / 2, CvType.CV_8UC1, slice(ySize + cSize, cSize));
+        mAllocations++;
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer dup = mI420Buffer.duplicate();
+        dup.position(offset);
+        dup.limit(offset + length);
+        return dup.slice();
+    }
+
+    private void releaseI420() {
+        if (mI420 != null) {
+            mI420.release();
+            mYDst.release();
+            mUDst.release();
+            mVDst.release();
+            mI420 = null;
+            mI420Buffer = null;
+        }
+        mWidth = -1;
+        mHeight = -1;
+    }
+
+    /** Number of frames converted. */
+    public long getFrames() {
+        return mFrames;
+    }
+
+    /** Number of buffer (re)allocations, stays flat while the frame size is constant. */
+    public long getAllocations() {
+        return mAllocations;
+    }
+
+    public long getLastConversionNanos() {
+        return mLastNanos;
+    }
+
+    public long getMeanConversionNanos() {
+        return mFrames == 0 ? 0 : mTotalNanos / mFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d frames, %d allocations, last %.2f ms, mean %.2f ms",
+                mFrames, mAllocations, mLastNanos / 1e6, getMeanConversionNanos() / 1e6);
+    }
+
+    public void release() {
+        releaseI420();
+        mRgba.release();
+    }
+}
@@ -22,3 +22,6 @@ dependencyResolutionManagement {
 rootProject.name = "GuageReaderApp"
 include(":app")
 include(":opencv")
+include(":gauge-core")
+include(":gauge-bench")
+include(":gauge-eval")